@@ -0,0 +1,145 @@
+import javax.swing.*;
+import java.lang.reflect.Method;
+import java.util.List;
+
+// Talks to the readers on a thread of its own and hands each round of reads to the EDT in one
+// piece, so the window stays responsive however slow (or dead) a reader is. A round is one
+// ReaderEngine.pollAll: a "t" to every reader, or a drain of what they streamed, bounded by a timeout.
+// The service thread is a virtual thread where the JDK has them (21+), otherwise a daemon thread.
+public class AcquisitionService {
+    // How much of the previous average each new round keeps
+    private static final double AVERAGE_WEIGHT = 0.8;
+
+    public interface Listener {
+        // On the EDT, once per round, reads or not
+        void onRound(List<TagEvent> events, Latency latency);
+    }
+
+    // On the service thread, once per round before it goes to the EDT; for work too slow for the
+    // EDT, such as writing the reads to disk
+    public interface Recorder {
+        void record(List<TagEvent> events);
+    }
+
+    // Round trip of the last round, a running average and the worst since start, in ms
+    public static final class Latency {
+        public final long lastMs;
+        public final long averageMs;
+        public final long maxMs;
+        public final int readerCount;
+
+        Latency(long lastMs, long averageMs, long maxMs, int readerCount) {
+            this.lastMs = lastMs;
+            this.averageMs = averageMs;
+            this.maxMs = maxMs;
+            this.readerCount = readerCount;
+        }
+
+        @Override
+        public String toString() {
+            return readerCount + (readerCount == 1 ? " reader, " : " readers, ")
+                    + lastMs + " ms (avg " + averageMs + ", max " + maxMs + ")";
+        }
+    }
+
+    private final ReaderEngine engine;
+    private final Listener listener;
+    private final Recorder recorder;
+    private final Object wakeLock = new Object();
+    private Thread thread; // the latest service thread, guarded by this
+    private volatile Thread active; // the thread that should be polling, null when stopped
+
+    public AcquisitionService(ReaderEngine engine, Listener listener) {
+        this(engine, events -> { }, listener);
+    }
+
+    public AcquisitionService(ReaderEngine engine, Recorder recorder, Listener listener) {
+        this.engine = engine;
+        this.recorder = recorder;
+        this.listener = listener;
+    }
+
+    // Starts polling every intervalMs (streaming: draining) with rounds cut off after timeoutMs
+    public synchronized void start(boolean stream, long intervalMs, long timeoutMs) {
+        if (active != null) {
+            return;
+        }
+        Thread previous = thread;
+        thread = newThread(() -> run(previous, stream, intervalMs, timeoutMs), "reader-acquisition");
+        active = thread;
+        thread.start();
+    }
+
+    // Returns at once; the round in progress finishes (within its timeout) on the service thread
+    public synchronized void stop() {
+        active = null;
+        synchronized (wakeLock) {
+            wakeLock.notifyAll();
+        }
+    }
+
+    public boolean isRunning() {
+        return active != null;
+    }
+
+    private void run(Thread previous, boolean stream, long intervalMs, long timeoutMs) {
+        if (previous != null) {
+            // a quick Stop, Start: let the last run finish its round and stop its streams first
+            try {
+                previous.join();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        Thread self = Thread.currentThread();
+        if (stream && active == self) {
+            // blocks while every reader is switched to autonomous mode
+            engine.startStreams();
+        }
+        double average = -1;
+        long max = 0;
+        while (active == self) {
+            long start = System.nanoTime();
+            List<TagEvent> events = engine.pollAll(timeoutMs);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            average = average < 0 ? elapsedMs : AVERAGE_WEIGHT * average + (1 - AVERAGE_WEIGHT) * elapsedMs;
+            max = Math.max(max, elapsedMs);
+            Latency latency = new Latency(elapsedMs, Math.round(average), max, engine.getReaderCount());
+            if (active != self) {
+                break;
+            }
+            recorder.record(events);
+            SwingUtilities.invokeLater(() -> listener.onRound(events, latency));
+            long waitMs = intervalMs - elapsedMs;
+            if (waitMs > 0) {
+                synchronized (wakeLock) {
+                    try {
+                        if (active == self) {
+                            wakeLock.wait(waitMs);
+                        }
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (engine.isStreaming()) {
+            engine.stopStreams();
+        }
+    }
+
+    private static Thread newThread(Runnable task, String name) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class).invoke(builder, name);
+            return (Thread) builderType.getMethod("unstarted", Runnable.class).invoke(builder, task);
+        } catch (ReflectiveOperationException e) {
+            // before JDK 21
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
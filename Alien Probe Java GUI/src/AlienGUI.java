@@ -2,22 +2,31 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
 import java.sql.DriverManager;
 import java.sql.Connection;
 
 public class AlienGUI extends JFrame {
-    DefaultListModel<String> listModel = new DefaultListModel<>();
-    private Timer timer; // Timer to manage periodic updates
+    private static final int POLL_MS = 2000;
+    private static final int STREAM_DRAIN_MS = 100;
+    private static final int POLL_TIMEOUT_MS = 1500;
+    private static final String DATA_DIRECTORY = "collected_data";
+    private final ReadsTableModel readsModel = new ReadsTableModel(); // one row per tag, bounded
+    private Timer timer; // drains a replay into the table; reader I/O never runs on the EDT
     private JLabel statusLabel; // Label to show the current status
+    private final ReaderEngine engine = new ReaderEngine(); // every configured reader, polled in parallel
+    private final AcquisitionService acquisition = new AcquisitionService(engine, this::record, this::onRound);
+    // Recordings are opened and closed on the EDT and written on the acquisition thread
+    private final Object recordingLock = new Object();
+    private volatile ReadRecorder recorder; // every read while running, when recording is on; null otherwise
+    private volatile ReadLogWriter readLog; // the same reads in the searchable, replayable format; null when off
+    private ReadLogReplay replay; // reads come from here instead of the readers while a log is replayed
 
     public AlienGUI() {
 
@@ -54,7 +63,14 @@ public class AlienGUI extends JFrame {
         JLabel portLabel = new JLabel("Port");
         JTextField portTextField = new JTextField(20);
 
-        JButton submitBtn = new JButton("Submit");
+        JCheckBox streamCheckBox = new JCheckBox("Stream mode (reader pushes reads)");
+        JCheckBox recordCheckBox = new JCheckBox("Record every read to " + DATA_DIRECTORY);
+        JComboBox<ReadRecorder.Format> formatComboBox = new JComboBox<>(ReadRecorder.Format.values());
+        JCheckBox gzipCheckBox = new JCheckBox("Compress recordings (gzip)");
+        JCheckBox readLogCheckBox = new JCheckBox("Keep a read log (" + ReadLog.EXTENSION + ") for replay");
+
+        JButton submitBtn = new JButton("Add Reader");
+        JLabel readersLabel = new JLabel("Readers: none");
 
 
         settingsPanel.add(usernameLabel, gbc);
@@ -76,12 +92,25 @@ public class AlienGUI extends JFrame {
         gbc.gridy++;
         settingsPanel.add(portTextField, gbc);
         gbc.gridy++;
+        settingsPanel.add(streamCheckBox, gbc);
+        gbc.gridy++;
+        settingsPanel.add(recordCheckBox, gbc);
+        gbc.gridy++;
+        settingsPanel.add(formatComboBox, gbc);
+        gbc.gridy++;
+        settingsPanel.add(gzipCheckBox, gbc);
+        gbc.gridy++;
+        settingsPanel.add(readLogCheckBox, gbc);
+        gbc.gridy++;
         settingsPanel.add(submitBtn, gbc);
         gbc.gridy++;
+        settingsPanel.add(readersLabel, gbc);
+        gbc.gridy++;
 
         //READS
-        JList<String> readsList = new JList<>(listModel);
-        JScrollPane scrollPane = new JScrollPane(readsList);
+        JTable readsTable = new JTable(readsModel);
+        readsTable.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(readsTable);
         scrollPane.setPreferredSize(new Dimension(200, 150));
         scrollPane.setBorder(BorderFactory.createTitledBorder("Reads"));
 
@@ -89,6 +118,7 @@ public class AlienGUI extends JFrame {
         JButton stopButton = new JButton("Stop");
         JButton clearButton = new JButton("Clear");
         JButton saveButton = new JButton("Save");
+        JButton replayButton = new JButton("Replay");
         JPanel buttonPanel = new JPanel();
 
         //add buttons to panel
@@ -96,8 +126,10 @@ public class AlienGUI extends JFrame {
         buttonPanel.add(stopButton);
         buttonPanel.add(clearButton);
         buttonPanel.add(saveButton);
+        buttonPanel.add(replayButton);
 
         saveButton.addActionListener(e -> saveReadsToUniqueFile());
+        replayButton.addActionListener(e -> startReplay());
 
         // Initialize the status label and set its initial text
         statusLabel = new JLabel("Standby");
@@ -121,40 +153,74 @@ public class AlienGUI extends JFrame {
         submitBtn.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                AlienReader.readerUserName = usernameTextField.getText();
-                AlienReader.readerPassword = passwordTextField.getText();
-                AlienReader.readerIP = IPTextField.getText();
-                AlienReader.readerPort = Integer.parseInt(portTextField.getText());
+                // each reader is keyed by ip:port, submitting the same one again updates it
+                String ip = IPTextField.getText().trim();
+                int port = Integer.parseInt(portTextField.getText().trim());
+                engine.addReader(new AlienReader(ip + ":" + port, ip, port,
+                        usernameTextField.getText(), passwordTextField.getText()));
+                StringJoiner ids = new StringJoiner(", ");
+                for (AlienReader reader : engine.getReaders()) {
+                    ids.add(reader.getReaderId());
+                }
+                readersLabel.setText("Readers: " + ids);
             }
         });
 
-        timer = new Timer(2000, new ActionListener() {
+        timer = new Timer(STREAM_DRAIN_MS, new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                // Add a new item to the list model every second
-                List<String> tagList = AlienReader.GetTagList();
-                if (tagList == null) {
-                    listModel.addElement("No Scans");
+                if (replay == null) {
+                    timer.stop();
+                    return;
                 }
-                for(String tag : tagList) {
-                    listModel.addElement(tag);
+                readsModel.addAll(replay.drain());
+                if (replay.isFinished()) {
+                    timer.stop();
+                    replay = null;
+                    statusLabel.setText("Replay finished");
                 }
             }
         });
         startButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!timer.isRunning()) {
-                    timer.start();
-                    statusLabel.setText("Working");
+                if (!acquisition.isRunning() && replay == null) {
+                    if (recordCheckBox.isSelected()) {
+                        try {
+                            recorder = new ReadRecorder(new File(DATA_DIRECTORY), "reads",
+                                    (ReadRecorder.Format) formatComboBox.getSelectedItem(), gzipCheckBox.isSelected(),
+                                    ReadRecorder.DEFAULT_MAX_BYTES, ReadRecorder.DEFAULT_MAX_AGE_MS);
+                            System.out.println("Recording to " + recorder.getCurrentFile());
+                        } catch (IOException ex) {
+                            System.out.println("Error starting recording: " + ex.getMessage());
+                        }
+                    }
+                    if (readLogCheckBox.isSelected()) {
+                        try {
+                            readLog = new ReadLogWriter(new File(DATA_DIRECTORY));
+                        } catch (IOException ex) {
+                            System.out.println("Error starting read log: " + ex.getMessage());
+                        }
+                    }
+                    // in stream mode a round only drains what the readers already pushed
+                    boolean stream = streamCheckBox.isSelected();
+                    acquisition.start(stream, stream ? STREAM_DRAIN_MS : POLL_MS, POLL_TIMEOUT_MS);
+                    statusLabel.setText(stream ? "Starting streams" : "Working");
                 }
             }
         });
         stopButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (timer.isRunning()) {
+                if (acquisition.isRunning() || replay != null) {
+                    // streams are stopped on the acquisition thread, not here
+                    acquisition.stop();
                     timer.stop();
+                    if (replay != null) {
+                        replay.stop();
+                        replay = null;
+                    }
+                    stopRecording();
                     statusLabel.setText("Standby");
                 }
             }
@@ -162,34 +228,155 @@ public class AlienGUI extends JFrame {
         clearButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                listModel.clear();
+                readsModel.clear();
             }
         });
 
+        readsModel.start();
         setVisible(true);
     }
 
-    private void saveReadsToUniqueFile() {
-        String directoryPath = "collected_data"; // Folder where you want to save the files
-        File directory = new File(directoryPath);
-        if (!directory.exists()) {
-            directory.mkdirs(); // Make the directory (including any necessary but nonexistent parent directories)
+    // One acquisition round, on the EDT
+    private void onRound(List<TagEvent> events, AcquisitionService.Latency latency) {
+        if (!acquisition.isRunning()) {
+            // a round that finished after Stop
+            return;
         }
+        // shown at the next frame, together with whatever else arrived by then
+        readsModel.addAll(events);
+        statusLabel.setText("Working, " + latency + pollSummary() + (recorder != null || readLog != null ? ", recording" : ""));
+    }
 
-        // Format the current date and time to use as a filename
-        String timeStamp = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
-        String fileName = "readsData_" + timeStamp + ".rtf";
+    // Last poll of every reader added up, and the readers whose last round went wrong
+    private String pollSummary() {
+        StringBuilder summary = new StringBuilder();
+        if (!engine.isStreaming()) {
+            int tags = 0;
+            int bytes = 0;
+            int saved = 0;
+            for (AlienReader reader : engine.getReaders()) {
+                PollStats stats = reader.getLastPollStats();
+                if (stats != null) {
+                    tags += stats.getTagCount();
+                    bytes += stats.getReplyBytes();
+                    saved += stats.getBytesSaved();
+                }
+            }
+            summary.append(", ").append(tags).append(" tags, ").append(bytes).append(" B (").append(saved).append(" B saved)");
+        }
+        for (Map.Entry<String, String> problem : engine.getProblems().entrySet()) {
+            summary.append(", ").append(problem.getKey()).append(": ").append(problem.getValue());
+        }
+        return summary.toString();
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(directoryPath, fileName)))) {
-            StringBuilder data = new StringBuilder();
-            for (int i = 0; i < listModel.size(); i++) {
-                data.append(listModel.get(i));
-                if (i < listModel.size() - 1) { // This checks if it's not the last element
-                    data.append(","); // Add a comma after each element except the last one
+    // On the acquisition thread: hands a round to whichever recordings are open;
+    // one that fails is closed and the rest go on
+    private void record(List<TagEvent> events) {
+        synchronized (recordingLock) {
+            for (TagEvent event : events) {
+                if (recorder != null) {
+                    try {
+                        recorder.record(event);
+                    } catch (IOException ex) {
+                        System.out.println("Error recording reads: " + ex.getMessage());
+                        closeRecorder();
+                        SwingUtilities.invokeLater(() -> statusLabel.setText("Working (recording failed)"));
+                    }
                 }
+                if (readLog != null) {
+                    try {
+                        readLog.record(event);
+                    } catch (IOException ex) {
+                        System.out.println("Error writing read log: " + ex.getMessage());
+                        closeReadLog();
+                        SwingUtilities.invokeLater(() -> statusLabel.setText("Working (read log failed)"));
+                    }
+                }
+            }
+        }
+    }
+
+    // On the EDT when stopped
+    private void stopRecording() {
+        synchronized (recordingLock) {
+            closeRecorder();
+            closeReadLog();
+        }
+    }
+
+    // On the EDT when stopped, on the acquisition thread when a write fails
+    private void closeRecorder() {
+        synchronized (recordingLock) {
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                    System.out.println(recorder.getRecordCount() + " reads recorded, last file " + recorder.getCurrentFile());
+                } catch (IOException ex) {
+                    System.out.println("Error closing recording: " + ex.getMessage());
+                }
+                recorder = null;
+            }
+        }
+    }
+
+    // Likewise for the read log
+    private void closeReadLog() {
+        synchronized (recordingLock) {
+            if (readLog != null) {
+                try {
+                    readLog.close();
+                    System.out.println(readLog.getRecordCount() + " reads logged, last file " + readLog.getCurrentFile());
+                } catch (IOException ex) {
+                    System.out.println("Error closing read log: " + ex.getMessage());
+                }
+                readLog = null;
+            }
+        }
+    }
+
+    // Plays a read log into the list as if its readers were connected
+    private void startReplay() {
+        if (acquisition.isRunning() || replay != null) {
+            return;
+        }
+        JFileChooser chooser = new JFileChooser(DATA_DIRECTORY);
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+                "Read logs", ReadLog.EXTENSION.substring(1)));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String[] speeds = {"1x", "10x", "100x", "As fast as possible"};
+        Object speed = JOptionPane.showInputDialog(this, "Replay speed", "Replay",
+                JOptionPane.QUESTION_MESSAGE, null, speeds, speeds[0]);
+        if (speed == null) {
+            return;
+        }
+        ReadLog log;
+        try {
+            log = ReadLog.open(chooser.getSelectedFile());
+        } catch (IOException ex) {
+            System.out.println("Error opening read log: " + ex.getMessage());
+            statusLabel.setText("Could not open " + chooser.getSelectedFile().getName());
+            return;
+        }
+        double multiplier = speed.equals(speeds[3])
+                ? ReadLogReplay.MAX_SPEED : Double.parseDouble(speed.toString().replace("x", ""));
+        replay = new ReadLogReplay(log, multiplier);
+        replay.start();
+        timer.start();
+        statusLabel.setText("Replaying " + log.getReadCount() + " reads from " + log.getFile().getName()
+                + (log.isRecovered() ? " (unfinished log, recovered " + log.getBlockCount() + " blocks)" : ""));
+    }
+
+    // Writes the table (one line per tag, with its totals) to a new CSV file
+    private void saveReadsToUniqueFile() {
+        try (ReadRecorder export = new ReadRecorder(new File(DATA_DIRECTORY), "readsData", ReadRecorder.Format.CSV, false,
+                ReadRecorder.NO_LIMIT, ReadRecorder.NO_LIMIT)) {
+            for (TagEvent row : readsModel.snapshot()) {
+                export.record(row);
             }
-            writer.write(String.valueOf(data));
-            System.out.println("Reads saved to file: " + fileName);
+            System.out.println("Reads saved to file: " + export.getCurrentFile().getName());
         } catch (IOException ex) {
             System.out.println("Error saving reads to file: " + ex.getMessage());
         }
@@ -1,61 +1,164 @@
-import com.alien.enterpriseRFID.reader.AlienClass1Reader;
-import com.alien.enterpriseRFID.reader.AlienReaderConnectionException;
-import com.alien.enterpriseRFID.reader.AlienReaderNotValidException;
-import com.alien.enterpriseRFID.reader.AlienReaderTimeoutException;
+import com.alien.enterpriseRFID.reader.AlienReaderException;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
+// One ALR-F800. Each instance keeps its own settings, session, stream and stats,
+// so a single process can drive every reader at a site through ReaderEngine.
 public class AlienReader {
 
-    public static String readerIP;
-    public static int readerPort;
-    public static String readerUserName;
-    public static String readerPassword;
-    public static AlienClass1Reader reader = new AlienClass1Reader();
+    private final String readerId;
+    private String readerIP;
+    private int readerPort;
+    private String readerUserName;
+    private String readerPassword;
+    private int streamPort = TagStream.DEFAULT_PORT;
+    private TagStream tagStream;
+    // why the last startStream() failed, null once a stream starts; guarded by the instance lock
+    private Exception streamError;
+    // Match the TagListFormat negotiated by the session; guarded by the instance lock
+    private final TagListParser textParser = TagListParser.text();
+    private final TagListParser compactParser = TagListParser.custom(ReaderSession.COMPACT_TAGLIST_FORMAT);
+    private volatile PollStats lastPollStats;
+    private volatile Exception lastPollError;
+
+    public AlienReader(String readerId, String readerIP, int readerPort, String readerUserName, String readerPassword) {
+        this.readerId = readerId;
+        this.readerIP = readerIP;
+        this.readerPort = readerPort;
+        this.readerUserName = readerUserName;
+        this.readerPassword = readerPassword;
+    }
+
+    // Pooled connection, shared across polls instead of reconnecting each time
+    private ReaderSession session(){
+        ReaderSession session = ReaderSession.get(readerIP, readerPort, readerUserName, readerPassword);
+        session.setTagListCustomFormat(ReaderSession.COMPACT_TAGLIST_FORMAT);
+        return session;
+    }
 
     public static void main(String[] args) {
 
     }
 
-    public static void openReader(){
+    public void openReader(){
         try {
-            reader.setConnection(readerIP, readerPort); // Replace with your reader's IP address
-            reader.setUsername(readerUserName); // Add your reader's username
-            reader.setPassword(readerPassword);
-            reader.open();
-            System.out.println("Connection established with RFID reader.");
-        } catch (AlienReaderNotValidException e) {
-            throw new RuntimeException(e);
-        } catch (AlienReaderTimeoutException e) {
-            throw new RuntimeException(e);
-        } catch (AlienReaderConnectionException e) {
+            // any cheap command logs the pooled session in
+            session().doCommand("get ReaderName");
+        } catch (AlienReaderException e) {
             throw new RuntimeException(e);
         }
     }
-    public static void closeReader(){
+    public void closeReader(){
         try {
-            reader.close();
-            System.out.println("Connection Closed.");
+            session().close();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-    public static List<String> GetTagList(){
-        System.out.println(readerIP + " " + readerPort + " " + readerUserName + " " + readerPassword);
+    public List<String> GetTagList(){
+        List<TagRead> reads = GetTagReads();
+        if (reads == null) {
+            return null;
+        }
+        return toEpcList(reads);
+    }
+
+    // Decoded reads (antenna, count, timestamps) for the current reply to "t"
+    public synchronized List<TagRead> GetTagReads(){
         try {
-            String commandOutput = reader.doReaderCommand("t");
-            List<String> outputLines = Arrays.stream(commandOutput.split("\\r?\\n"))
-                    .collect(Collectors.toList());
-            return outputLines;
+            ReaderSession session = session();
+            String commandOutput = session.doCommand("t");
+            TagListParser parser = session.isCustomFormatActive() ? compactParser : textParser;
+            List<TagRead> reads = new ArrayList<>();
+            long parseStart = System.nanoTime();
+            parser.parse(commandOutput, reads::add);
+            long parseNanos = System.nanoTime() - parseStart;
+            int textBytes = 0;
+            for (TagRead read : reads) {
+                textBytes += PollStats.textLineBytes(read);
+            }
+            lastPollStats = new PollStats(reads.size(), commandOutput.length(), textBytes, parseNanos);
+            lastPollError = null;
+            return reads;
         } catch (Exception e) {
-            System.out.println(e);
-            e.printStackTrace();
+            lastPollError = e;
         }
         return null;
     }
 
+    // Payload size and parse time of the most recent successful poll, null before the first one
+    public PollStats getLastPollStats(){
+        return lastPollStats;
+    }
+
+    // Why the most recent poll returned null, null if it succeeded
+    public Exception getLastPollError(){
+        return lastPollError;
+    }
+
+    private static List<String> toEpcList(List<TagRead> reads){
+        List<String> epcs = new ArrayList<>(reads.size());
+        for (TagRead read : reads) {
+            epcs.add(read.getEPC());
+        }
+        return epcs;
+    }
+
+    // Autonomous mode: the reader pushes every read to us instead of being polled with "t"
+    public synchronized void startStream(){
+        try {
+            TagStream stream = new TagStream(session(), streamPort);
+            stream.start();
+            tagStream = stream;
+            streamError = null;
+        } catch (Exception e) {
+            streamError = e;
+            throw new RuntimeException(e);
+        }
+    }
+    public synchronized void stopStream(){
+        if (tagStream != null) {
+            tagStream.stop();
+            tagStream = null;
+        }
+        streamError = null;
+    }
+    public synchronized boolean isStreaming(){
+        return tagStream != null && tagStream.isRunning();
+    }
+
+    // Whatever the reader has pushed since the last call, waiting at most timeoutMs for the first read.
+    // Throws if the stream did not start or has stopped, so a silent reader is not taken for a quiet one.
+    public List<TagRead> GetStreamedReads(long timeoutMs){
+        List<TagRead> reads = new ArrayList<>();
+        TagStream stream;
+        Exception error;
+        synchronized (this) {
+            stream = tagStream;
+            error = streamError;
+        }
+        if (stream == null || !stream.isRunning()) {
+            throw new IllegalStateException("stream not running"
+                    + (error != null ? ", it failed to start: " + error.getMessage() : ""), error);
+        }
+        try {
+            stream.drainTo(reads, timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return reads;
+    }
+
+    public List<String> GetStreamedTags(long timeoutMs){
+        return toEpcList(GetStreamedReads(timeoutMs));
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
     public String getReaderIP() {
         return readerIP;
     }
@@ -87,4 +190,13 @@ public class AlienReader {
     public void setReaderPassword(String readerPassword) {
         this.readerPassword = readerPassword;
     }
+
+    public int getStreamPort() {
+        return streamPort;
+    }
+
+    // Every streaming reader needs its own listener port
+    public void setStreamPort(int streamPort) {
+        this.streamPort = streamPort;
+    }
 }
@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+// Decides whether a read is a new sighting or a repeat of a tag reported recently.
+// A tag is reported once, then again only after rearmMillis have passed since its last report.
+// EPCs are kept as primitive keys (two longs and a digit count) in fixed-size open-addressing
+// tables, so a check is O(1) and memory never grows past maxTags entries: once a table fills up,
+// expired entries are purged and then the oldest ones are evicted.
+// The table is split into independently locked segments so the scan thread and the UI thread
+// rarely wait on each other.
+public class EpcDeduplicator {
+    private static final int SEGMENTS = 16;
+    private static final float MAX_LOAD = 0.75f;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long rearmMillis;
+
+    public EpcDeduplicator(int maxTags, long rearmMillis) {
+        this.rearmMillis = rearmMillis;
+        int perSegment = Math.max(1, (maxTags + SEGMENTS - 1) / SEGMENTS);
+        // power of two slots, with room for the load factor
+        int slots = Integer.highestOneBit((int) Math.ceil(perSegment / MAX_LOAD) - 1) << 1;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(2, slots), perSegment);
+        }
+    }
+
+    // True if this read should be reported, and remembers it as reported at nowMillis
+    public boolean isNew(TagRead read, long nowMillis) {
+        return isNew(read.getEpcHi(), read.getEpcLo(), read.getEpcDigits(), nowMillis);
+    }
+
+    public boolean isNew(long epcHi, long epcLo, int epcDigits, long nowMillis) {
+        long hash = mix(epcHi, epcLo, epcDigits);
+        Segment segment = segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            return segment.checkAndMark(epcHi, epcLo, (byte) epcDigits, (int) hash, nowMillis, rearmMillis);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    // splitmix64 finalizer over the key
+    private static long mix(long hi, long lo, int digits) {
+        long h = hi * 0x9E3779B97F4A7C15L + lo + digits;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    private static final class Segment {
+        private final long[] hi;
+        private final long[] lo;
+        private final byte[] digits;
+        // last report time; 0 marks an empty slot
+        private final long[] reportedAt;
+        private final int mask;
+        private final int maxEntries;
+        private int size;
+
+        Segment(int slots, int maxEntries) {
+            hi = new long[slots];
+            lo = new long[slots];
+            digits = new byte[slots];
+            reportedAt = new long[slots];
+            mask = slots - 1;
+            this.maxEntries = Math.min(maxEntries, (int) (slots * MAX_LOAD));
+        }
+
+        boolean checkAndMark(long keyHi, long keyLo, byte keyDigits, int hash, long now, long rearm) {
+            // timestamps double as the empty marker, so never store 0
+            long stamp = now == 0 ? 1 : now;
+            int reuse = -1;
+            int i = hash & mask;
+            while (reportedAt[i] != 0) {
+                if (hi[i] == keyHi && lo[i] == keyLo && digits[i] == keyDigits) {
+                    if (now - reportedAt[i] >= rearm) {
+                        reportedAt[i] = stamp;
+                        return true;
+                    }
+                    return false;
+                }
+                if (reuse < 0 && now - reportedAt[i] >= rearm) {
+                    // expired entry for another tag; its slot can hold this one
+                    reuse = i;
+                }
+                i = (i + 1) & mask;
+            }
+            if (reuse >= 0) {
+                i = reuse;
+            } else {
+                if (size >= maxEntries) {
+                    evict(now, rearm);
+                    return checkAndMark(keyHi, keyLo, keyDigits, hash, now, rearm);
+                }
+                size++;
+            }
+            hi[i] = keyHi;
+            lo[i] = keyLo;
+            digits[i] = keyDigits;
+            reportedAt[i] = stamp;
+            return true;
+        }
+
+        // Drops expired entries, then the oldest quarter if the segment is still full,
+        // and reinserts the survivors so probe chains stay short
+        private void evict(long now, long rearm) {
+            long cutoff = now - rearm;
+            int live = 0;
+            for (long t : reportedAt) {
+                if (t != 0 && t > cutoff) {
+                    live++;
+                }
+            }
+            if (live >= maxEntries) {
+                long[] times = new long[live];
+                int n = 0;
+                for (long t : reportedAt) {
+                    if (t != 0 && t > cutoff) {
+                        times[n++] = t;
+                    }
+                }
+                Arrays.sort(times);
+                cutoff = times[Math.max(0, live / 4 - 1)];
+            }
+            long[] oldHi = hi.clone();
+            long[] oldLo = lo.clone();
+            byte[] oldDigits = digits.clone();
+            long[] oldReportedAt = reportedAt.clone();
+            clear();
+            for (int j = 0; j < oldReportedAt.length; j++) {
+                if (oldReportedAt[j] != 0 && oldReportedAt[j] > cutoff) {
+                    int k = (int) mix(oldHi[j], oldLo[j], oldDigits[j]) & mask;
+                    while (reportedAt[k] != 0) {
+                        k = (k + 1) & mask;
+                    }
+                    hi[k] = oldHi[j];
+                    lo[k] = oldLo[j];
+                    digits[k] = oldDigits[j];
+                    reportedAt[k] = oldReportedAt[j];
+                    size++;
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(reportedAt, 0);
+            size = 0;
+        }
+    }
+}
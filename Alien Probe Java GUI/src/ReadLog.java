@@ -0,0 +1,305 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// A read log written by ReadLogWriter, memory-mapped for queries and replay.
+//
+// Layout (big-endian):
+//   header   "RLOG", version
+//   block*   "BLK1", reads, minTime, maxTime, reader names, EPC bloom filter,
+//            then one column per field: time, EPC high, EPC low, EPC digits, reader, antenna, RSSI, count
+//   index    block count, {offset, reads, minTime, maxTime} per block, index offset, "RIDX"
+//
+// The index is the sparse time index: a time query only opens blocks whose [minTime, maxTime]
+// overlaps it, and an EPC query only blocks whose bloom filter may hold the EPC.
+public class ReadLog {
+    public static final String EXTENSION = ".rlog";
+    static final int FILE_MAGIC = 0x524C4F47;  // "RLOG"
+    static final int BLOCK_MAGIC = 0x424C4B31; // "BLK1"
+    static final int INDEX_MAGIC = 0x52494458; // "RIDX"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int BLOCK_READS = 4096;
+    static final int BYTES_PER_READ = 8 + 8 + 8 + 1 + 2 + 1 + 4 + 4;
+    static final int MAX_READERS_PER_BLOCK = 64;
+    static final int MAX_READER_BYTES = 256;
+    // 10 bits per read and 7 probes: about 1% false positives even when every read in a block is a different tag
+    static final int BLOOM_LONGS = BLOCK_READS * 10 / 64;
+    static final int BLOOM_PROBES = 7;
+    static final int MAX_BLOCK_BYTES = 4 + 4 + 8 + 8 + 2 + MAX_READERS_PER_BLOCK * (2 + MAX_READER_BYTES)
+            + BLOOM_LONGS * 8 + BLOCK_READS * BYTES_PER_READ;
+    static final int INDEX_ENTRY_BYTES = 8 + 4 + 8 + 8;
+    static final int TRAILER_BYTES = 8 + 4;
+
+    private final File file;
+    private final MappedByteBuffer map;
+    private final long[] blockOffsets;
+    private final int[] blockReads;
+    private final long[] blockMinTime;
+    private final long[] blockMaxTime;
+    private final boolean recovered;
+
+    private ReadLog(File file, MappedByteBuffer map, List<long[]> blocks, boolean recovered) {
+        this.file = file;
+        this.map = map;
+        this.recovered = recovered;
+        int n = blocks.size();
+        blockOffsets = new long[n];
+        blockReads = new int[n];
+        blockMinTime = new long[n];
+        blockMaxTime = new long[n];
+        for (int i = 0; i < n; i++) {
+            long[] block = blocks.get(i);
+            blockOffsets[i] = block[0];
+            blockReads[i] = (int) block[1];
+            blockMinTime[i] = block[2];
+            blockMaxTime[i] = block[3];
+        }
+    }
+
+    public static ReadLog open(File file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is over 2 GiB; split it before opening");
+            }
+            // the mapping outlives the channel
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (map.limit() < HEADER_BYTES || map.getInt(0) != FILE_MAGIC) {
+            throw new IOException(file + " is not a read log");
+        }
+        if (map.getInt(4) != VERSION) {
+            throw new IOException(file + " is read log version " + map.getInt(4) + ", expected " + VERSION);
+        }
+        List<long[]> blocks = readIndex(map);
+        boolean recovered = blocks == null;
+        if (recovered) {
+            // no index: the writer did not finish
+            blocks = walkBlocks(map);
+        }
+        return new ReadLog(file, map, blocks, recovered);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // True if the file had no index (the writer did not finish) and its blocks were found by walking it
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    public long getReadCount() {
+        long reads = 0;
+        for (int n : blockReads) {
+            reads += n;
+        }
+        return reads;
+    }
+
+    // Earliest read time, or TagRead.NO_TIME for an empty log
+    public long getStartTime() {
+        long start = Long.MAX_VALUE;
+        for (long t : blockMinTime) {
+            start = Math.min(start, t);
+        }
+        return blockMinTime.length == 0 ? TagRead.NO_TIME : start;
+    }
+
+    // Every read in the order it was written
+    public void forEach(Consumer<TagEvent> visitor) {
+        for (int b = 0; b < blockOffsets.length; b++) {
+            Block block = new Block(b);
+            for (int i = 0; i < block.reads; i++) {
+                visitor.accept(block.event(i));
+            }
+        }
+    }
+
+    // Reads received between fromMillis (inclusive) and toMillis (exclusive), in file order
+    public void between(long fromMillis, long toMillis, Consumer<TagEvent> visitor) {
+        for (int b = 0; b < blockOffsets.length; b++) {
+            if (blockMaxTime[b] < fromMillis || blockMinTime[b] >= toMillis) {
+                continue;
+            }
+            Block block = new Block(b);
+            for (int i = 0; i < block.reads; i++) {
+                long t = block.time(i);
+                if (t >= fromMillis && t < toMillis) {
+                    visitor.accept(block.event(i));
+                }
+            }
+        }
+    }
+
+    public List<TagEvent> between(long fromMillis, long toMillis) {
+        List<TagEvent> events = new ArrayList<>();
+        between(fromMillis, toMillis, events::add);
+        return events;
+    }
+
+    // Every read of one EPC, in file order
+    public void readsOf(String epc, Consumer<TagEvent> visitor) {
+        TagRead key = TagRead.ofEpc(epc);
+        long hi = key.getEpcHi();
+        long lo = key.getEpcLo();
+        int digits = key.getEpcDigits();
+        for (int b = 0; b < blockOffsets.length; b++) {
+            Block block = new Block(b);
+            if (!block.mayContain(hi, lo, digits)) {
+                continue;
+            }
+            for (int i = 0; i < block.reads; i++) {
+                if (block.epcLo(i) == lo && block.epcHi(i) == hi && block.epcDigits(i) == digits) {
+                    visitor.accept(block.event(i));
+                }
+            }
+        }
+    }
+
+    public List<TagEvent> readsOf(String epc) {
+        List<TagEvent> events = new ArrayList<>();
+        readsOf(epc, events::add);
+        return events;
+    }
+
+    // Column positions of one block inside the mapping
+    private final class Block {
+        final int reads;
+        final String[] readers;
+        final int bloomAt;
+        final int timeAt;
+        final int epcHiAt;
+        final int epcLoAt;
+        final int epcDigitsAt;
+        final int readerAt;
+        final int antennaAt;
+        final int rssiAt;
+        final int countAt;
+
+        Block(int b) {
+            ByteBuffer in = map.duplicate();
+            in.position((int) blockOffsets[b] + 4 + 4 + 8 + 8);
+            reads = blockReads[b];
+            readers = new String[in.getShort()];
+            for (int i = 0; i < readers.length; i++) {
+                byte[] name = new byte[in.getShort()];
+                in.get(name);
+                readers[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            bloomAt = in.position();
+            timeAt = bloomAt + BLOOM_LONGS * 8;
+            epcHiAt = timeAt + reads * 8;
+            epcLoAt = epcHiAt + reads * 8;
+            epcDigitsAt = epcLoAt + reads * 8;
+            readerAt = epcDigitsAt + reads;
+            antennaAt = readerAt + reads * 2;
+            rssiAt = antennaAt + reads;
+            countAt = rssiAt + reads * 4;
+        }
+
+        boolean mayContain(long hi, long lo, int digits) {
+            long h = mix(hi, lo, digits);
+            for (int k = 0; k < BLOOM_PROBES; k++) {
+                int bit = bloomBit(h, k);
+                if ((map.getLong(bloomAt + (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long time(int i) { return map.getLong(timeAt + i * 8); }
+        long epcHi(int i) { return map.getLong(epcHiAt + i * 8); }
+        long epcLo(int i) { return map.getLong(epcLoAt + i * 8); }
+        int epcDigits(int i) { return map.get(epcDigitsAt + i); }
+
+        TagEvent event(int i) {
+            TagRead read = new TagRead(epcHi(i), epcLo(i), epcDigits(i), map.get(antennaAt + i),
+                    map.getFloat(rssiAt + i * 4), map.getInt(countAt + i * 4), TagRead.NO_TIME, TagRead.NO_TIME);
+            return new TagEvent(readers[map.getShort(readerAt + i * 2)], read, time(i));
+        }
+    }
+
+    // Adds an EPC to a block's bloom filter
+    static void bloomAdd(long[] bloom, long hi, long lo, int digits) {
+        long h = mix(hi, lo, digits);
+        for (int k = 0; k < BLOOM_PROBES; k++) {
+            int bit = bloomBit(h, k);
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    // Probe k of one hash: the two halves combined (Kirsch-Mitzenmacher), so one hash serves every probe
+    private static int bloomBit(long h, int k) {
+        int combined = (int) h + k * (int) (h >>> 32);
+        return (combined & Integer.MAX_VALUE) % (BLOOM_LONGS * 64);
+    }
+
+    // splitmix64 finalizer over the EPC, as in EpcDeduplicator
+    private static long mix(long hi, long lo, int digits) {
+        long h = hi * 0x9E3779B97F4A7C15L + lo + digits;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    // The block index from the end of the file, or null if it is missing or does not fit
+    private static List<long[]> readIndex(ByteBuffer map) {
+        int end = map.limit();
+        if (end < HEADER_BYTES + 4 + TRAILER_BYTES || map.getInt(end - 4) != INDEX_MAGIC) {
+            return null;
+        }
+        long indexOffset = map.getLong(end - TRAILER_BYTES);
+        if (indexOffset < HEADER_BYTES || indexOffset > end - 4 - TRAILER_BYTES) {
+            return null;
+        }
+        int count = map.getInt((int) indexOffset);
+        if ((long) count * INDEX_ENTRY_BYTES != end - TRAILER_BYTES - indexOffset - 4) {
+            return null;
+        }
+        List<long[]> blocks = new ArrayList<>(count);
+        int at = (int) indexOffset + 4;
+        for (int i = 0; i < count; i++, at += INDEX_ENTRY_BYTES) {
+            blocks.add(new long[]{map.getLong(at), map.getInt(at + 8), map.getLong(at + 12), map.getLong(at + 20)});
+        }
+        return blocks;
+    }
+
+    // Every whole block from the header on; a torn last block is left out
+    private static List<long[]> walkBlocks(ByteBuffer map) {
+        List<long[]> blocks = new ArrayList<>();
+        ByteBuffer in = map.duplicate();
+        int at = HEADER_BYTES;
+        while (at + 4 + 4 + 8 + 8 + 2 <= in.limit() && in.getInt(at) == BLOCK_MAGIC) {
+            int reads = in.getInt(at + 4);
+            long minTime = in.getLong(at + 8);
+            long maxTime = in.getLong(at + 16);
+            int next = at + 4 + 4 + 8 + 8;
+            int readerCount = in.getShort(next);
+            next += 2;
+            for (int i = 0; i < readerCount && next + 2 <= in.limit(); i++) {
+                next += 2 + in.getShort(next);
+            }
+            next += BLOOM_LONGS * 8 + reads * BYTES_PER_READ;
+            if (reads <= 0 || reads > BLOCK_READS || next > in.limit()) {
+                break;
+            }
+            blocks.add(new long[]{at, reads, minTime, maxTime});
+            at = next;
+        }
+        return blocks;
+    }
+}
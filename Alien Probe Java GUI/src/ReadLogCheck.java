@@ -0,0 +1,98 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// Writes read logs through ReadLogWriter and reads them back with ReadLog: a session rolled over
+// several files, time and EPC queries across their blocks, and a file copied while the writer was
+// still open, which has no index and has to be recovered. Prints what did not come back as
+// written and exits with status 1 if anything did not.
+//
+//   java ReadLogCheck
+public class ReadLogCheck {
+    private static final int READS = 10_000;
+    private static final int TAGS = 50;
+    private static final long START = 1_700_000_000_000L;
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        File directory = Files.createTempDirectory("readlog-check").toFile();
+        try {
+            checkRollover(new File(directory, "rollover"));
+            checkRecovery(new File(directory, "recovery"));
+        } finally {
+            for (File sub : directory.listFiles()) {
+                for (File file : sub.listFiles()) {
+                    file.delete();
+                }
+                sub.delete();
+            }
+            directory.delete();
+        }
+        System.out.println(failures == 0 ? "OK" : failures + " checks failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static TagEvent event(int i) {
+        String epc = String.format("3030401A78015CF6C001%04X", i % TAGS);
+        return new TagEvent("gate-" + (i % 3), TagRead.ofEpc(epc), START + i);
+    }
+
+    // Room for two full blocks a file, so READS reads take two files
+    private static void checkRollover(File directory) throws IOException {
+        try (ReadLogWriter writer = new ReadLogWriter(directory, "reads", 2L * ReadLog.MAX_BLOCK_BYTES)) {
+            for (int i = 0; i < READS; i++) {
+                writer.record(event(i));
+            }
+            check("records counted", READS, writer.getRecordCount());
+        }
+        File[] files = directory.listFiles();
+        check("files", 2, files.length);
+        long reads = 0;
+        long epcReads = 0;
+        long timeReads = 0;
+        for (File file : files) {
+            check(file.getName() + " under its limit", true, file.length() <= 2L * ReadLog.MAX_BLOCK_BYTES);
+            ReadLog log = ReadLog.open(file);
+            check(file.getName() + " has its index", false, log.isRecovered());
+            reads += log.getReadCount();
+            epcReads += log.readsOf(event(7).getEPC()).size();
+            timeReads += log.between(START + 4_000, START + 4_200).size();
+        }
+        check("reads over all files", READS, reads);
+        check("reads of one EPC", READS / TAGS, epcReads);
+        // the range spans the block boundary at 4096
+        check("reads in a time range", 200, timeReads);
+    }
+
+    // A copy taken while the writer is open ends after its last whole block
+    private static void checkRecovery(File directory) throws IOException {
+        File copy = new File(directory, "copy" + ReadLog.EXTENSION);
+        try (ReadLogWriter writer = new ReadLogWriter(directory)) {
+            for (int i = 0; i < ReadLog.BLOCK_READS + 100; i++) {
+                writer.record(event(i));
+            }
+            writer.sync();
+            Files.copy(writer.getCurrentFile().toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        ReadLog log = ReadLog.open(copy);
+        check("copy recovered", true, log.isRecovered());
+        check("blocks recovered", 1, log.getBlockCount());
+        check("reads recovered", ReadLog.BLOCK_READS, log.getReadCount());
+        TagEvent first = log.between(START, START + 1).get(0);
+        check("first read's reader", "gate-0", first.getReaderId());
+        check("first read's EPC", event(0).getEPC(), first.getEPC());
+    }
+
+    private static void check(String what, long expected, long actual) {
+        check(what, (Object) expected, (Object) actual);
+    }
+
+    private static void check(String what, Object expected, Object actual) {
+        if (!expected.equals(actual)) {
+            System.out.println(what + ": expected " + expected + ", got " + actual);
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Plays a ReadLog back as if its readers were live: reads come out spaced by their recorded
+// times divided by the speed (MAX_SPEED: no waiting). The GUI drains them like streamed reads;
+// a bounded queue holds the replay back when the GUI falls behind.
+public class ReadLogReplay {
+    public static final double MAX_SPEED = 0;
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final BlockingQueue<TagEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile boolean finished;
+
+    public ReadLogReplay(ReadLog log, double speed) {
+        thread = new Thread(() -> run(log, speed), "read-log-replay");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void stop() {
+        thread.interrupt();
+    }
+
+    // Reads due so far, oldest first
+    public List<TagEvent> drain() {
+        List<TagEvent> events = new ArrayList<>(queue.size());
+        queue.drainTo(events);
+        return events;
+    }
+
+    // True once every read has been handed out, or the replay was stopped
+    public boolean isFinished() {
+        return finished && queue.isEmpty();
+    }
+
+    private void run(ReadLog log, double speed) {
+        long logStart = log.getStartTime();
+        long wallStart = System.nanoTime();
+        try {
+            log.forEach(event -> {
+                try {
+                    if (speed > 0) {
+                        long dueNanos = wallStart + (long) ((event.getReceivedAt() - logStart) * 1_000_000 / speed);
+                        long wait = dueNanos - System.nanoTime();
+                        // a sleep costs tens of microseconds, so fast replays hand out reads up to 1 ms early
+                        if (wait > 1_000_000) {
+                            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                        }
+                    }
+                    queue.put(event);
+                } catch (InterruptedException e) {
+                    throw new ReplayStopped();
+                }
+            });
+        } catch (ReplayStopped e) {
+            queue.clear();
+        } finally {
+            finished = true;
+        }
+    }
+
+    // Unwinds forEach when the replay is stopped
+    private static final class ReplayStopped extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ReplayStopped() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Writes reads in the ReadLog format: a header, then self-describing column blocks of up to
+// ReadLog.BLOCK_READS reads, then an index of the blocks. A file cut off before the index is
+// still readable up to its last whole block (ReadLog rebuilds the index by walking the blocks).
+// A background thread fsyncs what was written every SYNC_MS and writes out a block that has waited
+// FLUSH_MS, so a quiet gate reaches the disk too. Files roll over before maxBytes, which ReadLog can still map.
+public class ReadLogWriter implements Closeable {
+    // a half-full block is written out after this long, so a quiet gate still reaches the disk
+    public static final long FLUSH_MS = 10_000;
+    public static final long SYNC_MS = 1000;
+    // what ReadLog.open maps in one go
+    public static final long MAX_BYTES = Integer.MAX_VALUE;
+    public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+    private static final ScheduledExecutorService flushTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "read-log-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File directory;
+    private final String prefix;
+    private final long maxBytes;
+    private final Runnable flushTask = this::flushQuietly;
+    private File file;
+    private FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(ReadLog.MAX_BLOCK_BYTES);
+
+    // the block being filled, one array per column
+    private final long[] time = new long[ReadLog.BLOCK_READS];
+    private final long[] epcHi = new long[ReadLog.BLOCK_READS];
+    private final long[] epcLo = new long[ReadLog.BLOCK_READS];
+    private final byte[] epcDigits = new byte[ReadLog.BLOCK_READS];
+    private final short[] reader = new short[ReadLog.BLOCK_READS];
+    private final byte[] antenna = new byte[ReadLog.BLOCK_READS];
+    private final float[] rssi = new float[ReadLog.BLOCK_READS];
+    private final int[] count = new int[ReadLog.BLOCK_READS];
+    private final long[] bloom = new long[ReadLog.BLOOM_LONGS];
+    private final List<String> readers = new ArrayList<>();
+    private final Map<String, Short> readerIndex = new HashMap<>();
+    private int size;
+    private long minTime;
+    private long maxTime;
+    private long blockStartedAt;
+
+    private final List<long[]> index = new ArrayList<>(); // {offset, reads, minTime, maxTime} per block of this file
+    private long written;
+    private boolean dirty; // written since the last fsync
+    private boolean closed;
+
+    // Files named prefix_<time>.rlog in directory, each under maxBytes (at most MAX_BYTES)
+    public ReadLogWriter(File directory, String prefix, long maxBytes) throws IOException {
+        if (maxBytes > MAX_BYTES || maxBytes < ReadLog.HEADER_BYTES + ReadLog.MAX_BLOCK_BYTES + indexBytes(1)) {
+            throw new IllegalArgumentException("maxBytes " + maxBytes + " does not fit a block or is too much to map");
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        open();
+        flushTimer.schedule(flushTask, SYNC_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public ReadLogWriter(File directory) throws IOException {
+        this(directory, "reads", DEFAULT_MAX_BYTES);
+    }
+
+    public synchronized File getCurrentFile() {
+        return file;
+    }
+
+    // Reads written so far, including the block still in memory
+    public synchronized long getRecordCount() {
+        return written + size;
+    }
+
+    public synchronized void record(TagEvent event) throws IOException {
+        if (closed) {
+            throw new IOException(file + " is closed");
+        }
+        Short readerId = readerIndex.get(event.getReaderId());
+        if (readerId == null) {
+            if (readers.size() == ReadLog.MAX_READERS_PER_BLOCK) {
+                flush();
+            }
+            readerId = (short) readers.size();
+            readers.add(event.getReaderId());
+            readerIndex.put(event.getReaderId(), readerId);
+        }
+        TagRead read = event.getRead();
+        long receivedAt = event.getReceivedAt();
+        if (size == 0) {
+            minTime = receivedAt;
+            maxTime = receivedAt;
+            blockStartedAt = System.currentTimeMillis();
+        } else {
+            minTime = Math.min(minTime, receivedAt);
+            maxTime = Math.max(maxTime, receivedAt);
+        }
+        time[size] = receivedAt;
+        epcHi[size] = read.getEpcHi();
+        epcLo[size] = read.getEpcLo();
+        epcDigits[size] = (byte) read.getEpcDigits();
+        reader[size] = readerId;
+        antenna[size] = (byte) read.getAntenna();
+        rssi[size] = read.getRssi();
+        count[size] = read.getCount();
+        ReadLog.bloomAdd(bloom, read.getEpcHi(), read.getEpcLo(), read.getEpcDigits());
+        size++;
+        if (size == ReadLog.BLOCK_READS || System.currentTimeMillis() - blockStartedAt >= FLUSH_MS) {
+            flush();
+        }
+    }
+
+    // Writes the reads in memory as a block of their own, in a new file if this one is full
+    public synchronized void flush() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        if (channel.position() + ReadLog.MAX_BLOCK_BYTES + indexBytes(index.size() + 1) > maxBytes) {
+            closeFile();
+            open();
+        }
+        long offset = channel.position();
+        out.putInt(ReadLog.BLOCK_MAGIC).putInt(size).putLong(minTime).putLong(maxTime);
+        out.putShort((short) readers.size());
+        for (String name : readers) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, ReadLog.MAX_READER_BYTES);
+            out.putShort((short) length).put(bytes, 0, length);
+        }
+        for (long word : bloom) {
+            out.putLong(word);
+        }
+        // column by column, so a time or EPC scan reads one contiguous run
+        for (int i = 0; i < size; i++) {
+            out.putLong(time[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.putLong(epcHi[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.putLong(epcLo[i]);
+        }
+        out.put(epcDigits, 0, size);
+        for (int i = 0; i < size; i++) {
+            out.putShort(reader[i]);
+        }
+        out.put(antenna, 0, size);
+        for (int i = 0; i < size; i++) {
+            out.putFloat(rssi[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            out.putInt(count[i]);
+        }
+        writeOut();
+        dirty = true;
+        index.add(new long[]{offset, size, minTime, maxTime});
+        written += size;
+        size = 0;
+        readers.clear();
+        readerIndex.clear();
+        Arrays.fill(bloom, 0);
+    }
+
+    // Waits for the blocks written so far to reach the disk
+    public void sync() throws IOException {
+        FileChannel target;
+        synchronized (this) {
+            if (closed || !dirty) {
+                return;
+            }
+            dirty = false;
+            target = channel;
+        }
+        // outside the lock: record() must not wait on the disk
+        target.force(false);
+    }
+
+    // Writes the last block and the block index
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            closeFile();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            synchronized (this) {
+                if (!closed && size > 0 && System.currentTimeMillis() - blockStartedAt >= FLUSH_MS) {
+                    flush();
+                }
+            }
+            sync();
+        } catch (ClosedChannelException e) {
+            // rolled over or closed meanwhile; the file was synced on its way out
+        } catch (IOException e) {
+            System.out.println("Could not flush " + file + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            if (!closed) {
+                flushTimer.schedule(flushTask, SYNC_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        File next = new File(directory, prefix + "_" + stamp + ReadLog.EXTENSION);
+        for (int i = 2; next.exists(); i++) {
+            next = new File(directory, prefix + "_" + stamp + "-" + i + ReadLog.EXTENSION);
+        }
+        channel = FileChannel.open(next.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        file = next;
+        index.clear();
+        out.putInt(ReadLog.FILE_MAGIC).putInt(ReadLog.VERSION);
+        writeOut();
+        dirty = true;
+    }
+
+    // Appends this file's block index and closes it; the reads in memory stay for the next file
+    private void closeFile() throws IOException {
+        try {
+            long indexOffset = channel.position();
+            ByteBuffer indexBuffer = ByteBuffer.allocate(indexBytes(index.size()));
+            indexBuffer.putInt(index.size());
+            for (long[] entry : index) {
+                indexBuffer.putLong(entry[0]).putInt((int) entry[1]).putLong(entry[2]).putLong(entry[3]);
+            }
+            indexBuffer.putLong(indexOffset).putInt(ReadLog.INDEX_MAGIC);
+            indexBuffer.flip();
+            while (indexBuffer.hasRemaining()) {
+                channel.write(indexBuffer);
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+            dirty = false;
+        }
+    }
+
+    private static int indexBytes(int blocks) {
+        return 4 + blocks * ReadLog.INDEX_ENTRY_BYTES + ReadLog.TRAILER_BYTES;
+    }
+
+    private void writeOut() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
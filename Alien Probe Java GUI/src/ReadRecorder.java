@@ -0,0 +1,303 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Appends reads to a file as they arrive, one line per read (CSV or NDJSON), optionally gzipped.
+// Lines collect in a fixed buffer that goes to a FileChannel when full; a background thread
+// writes out whatever is buffered and fsyncs it every SYNC_MS, so a crash or power cut loses at
+// most that much. Files roll over by size or age, so a session of any length runs in constant memory.
+public class ReadRecorder implements Closeable {
+    public enum Format {
+        CSV(".csv"), NDJSON(".ndjson");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE_MS = 60 * 60 * 1000L;
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+    public static final long SYNC_MS = 1000;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final String CSV_HEADER = "time,time_ms,reader,antenna,epc,rssi,count\n";
+
+    private static final ScheduledExecutorService syncTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "read-recorder-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File directory;
+    private final String prefix;
+    private final Format format;
+    private final boolean gzip;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final ByteBuffer buffer;
+    private final StringBuilder line = new StringBuilder(128);
+    private final Runnable syncTask = this::syncQuietly;
+
+    // all guarded by this
+    private File file;
+    private FileChannel channel;
+    private GZIPOutputStream gzipStream; // null unless gzip
+    private long openedAt;
+    private long fileBytes; // uncompressed bytes in the current file
+    private long records;
+    private boolean dirty;
+    private boolean closed;
+
+    public ReadRecorder(File directory, String prefix, Format format, boolean gzip, long maxBytes, long maxAgeMs) throws IOException {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.format = format;
+        this.gzip = gzip;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        // the deflater reads from an array; the plain channel write is cheapest from native memory
+        this.buffer = gzip ? ByteBuffer.allocate(BUFFER_BYTES) : ByteBuffer.allocateDirect(BUFFER_BYTES);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        open(System.currentTimeMillis());
+        syncTimer.schedule(syncTask, SYNC_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Rolling CSV files in directory, with the default limits
+    public ReadRecorder(File directory) throws IOException {
+        this(directory, "reads", Format.CSV, false, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE_MS);
+    }
+
+    public synchronized void record(TagEvent event) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        long now = event.getReceivedAt();
+        if (fileBytes >= maxBytes || now - openedAt >= maxAgeMs) {
+            closeFile();
+            open(now);
+        }
+        line.setLength(0);
+        if (format == Format.CSV) {
+            appendCsv(event);
+        } else {
+            appendJson(event);
+        }
+        write(line);
+        records++;
+    }
+
+    // Reads recorded since construction, over every file
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    public synchronized File getCurrentFile() {
+        return file;
+    }
+
+    // Writes out everything buffered and waits for it to reach the disk
+    public void sync() throws IOException {
+        FileChannel target;
+        synchronized (this) {
+            if (closed || !dirty) {
+                return;
+            }
+            drain();
+            dirty = false;
+            target = channel;
+        }
+        // outside the lock: record() must not wait on the disk
+        target.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            closeFile();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (ClosedChannelException e) {
+            // rolled over or closed meanwhile; the file was synced on its way out
+        } catch (IOException e) {
+            System.out.println("Could not sync " + file + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            if (!closed) {
+                syncTimer.schedule(syncTask, SYNC_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void open(long now) throws IOException {
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date(now));
+        String suffix = format.extension + (gzip ? ".gz" : "");
+        File next = new File(directory, prefix + "_" + stamp + suffix);
+        for (int i = 2; next.exists(); i++) {
+            next = new File(directory, prefix + "_" + stamp + "-" + i + suffix);
+        }
+        channel = FileChannel.open(next.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (gzip) {
+            // sync flush: everything written so far decompresses, even if the trailer never comes
+            OutputStream out = Channels.newOutputStream(channel);
+            gzipStream = new GZIPOutputStream(out, BUFFER_BYTES, true);
+        }
+        file = next;
+        openedAt = now;
+        fileBytes = 0;
+        if (format == Format.CSV) {
+            write(CSV_HEADER);
+        }
+    }
+
+    private void closeFile() throws IOException {
+        try {
+            drain();
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+            channel.force(false);
+        } finally {
+            // closing the gzip stream frees its Deflater's native memory now, not at some later GC,
+            // and closes the channel under it
+            try {
+                if (gzipStream != null) {
+                    gzipStream.close();
+                }
+            } finally {
+                channel.close();
+                gzipStream = null;
+                dirty = false;
+            }
+        }
+    }
+
+    private void write(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            char c = text.charAt(i);
+            // UTF-8 by hand: everything but an unusual reader id is ASCII and goes straight in
+            if (c < 0x80) {
+                buffer.put((byte) c);
+                fileBytes++;
+            } else {
+                int codePoint = c;
+                if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+                    codePoint = Character.toCodePoint(c, text.charAt(++i));
+                } else if (Character.isSurrogate(c)) {
+                    codePoint = '?';
+                }
+                byte[] bytes = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+                buffer.put(bytes);
+                fileBytes += bytes.length;
+            }
+        }
+        dirty = true;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        if (gzipStream != null) {
+            gzipStream.write(buffer.array(), 0, buffer.limit());
+            gzipStream.flush();
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private void appendCsv(TagEvent event) {
+        TagRead read = event.getRead();
+        line.append(Instant.ofEpochMilli(event.getReceivedAt())).append(',')
+                .append(event.getReceivedAt()).append(',');
+        appendCsvField(event.getReaderId());
+        line.append(',');
+        if (read.getAntenna() != TagRead.NO_ANTENNA) {
+            line.append(read.getAntenna());
+        }
+        line.append(',').append(read.getEPC()).append(',');
+        if (read.hasRssi()) {
+            line.append(read.getRssi());
+        }
+        line.append(',').append(read.getCount()).append('\n');
+    }
+
+    private void appendCsvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private void appendJson(TagEvent event) {
+        TagRead read = event.getRead();
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(event.getReceivedAt()))
+                .append("\",\"timeMs\":").append(event.getReceivedAt())
+                .append(",\"reader\":");
+        appendJsonString(event.getReaderId());
+        line.append(",\"antenna\":");
+        if (read.getAntenna() != TagRead.NO_ANTENNA) {
+            line.append(read.getAntenna());
+        } else {
+            line.append("null");
+        }
+        line.append(",\"epc\":\"").append(read.getEPC())
+                .append("\",\"rssi\":");
+        if (read.hasRssi()) {
+            line.append(read.getRssi());
+        } else {
+            line.append("null");
+        }
+        line.append(",\"count\":").append(read.getCount()).append("}\n");
+    }
+
+    private void appendJsonString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Polls or streams every configured reader at once and merges their reads into one list,
+// each read tagged with the reader it came from. Readers are polled in parallel on a bounded
+// pool, so a poll of N readers costs about one round trip instead of N.
+// A timeout cannot interrupt a read blocked on its socket, so a reader whose last task is still
+// running is left out of later rounds until it returns, rather than queueing more work behind it.
+public class ReaderEngine {
+    // One blocking round trip per reader at a time; more than this queues up
+    private static final int MAX_THREADS = 16;
+    // Tasks waiting for a thread; with one task per reader at most, only a very large site fills it
+    private static final int MAX_QUEUED = 256;
+
+    private final Map<String, AlienReader> readers = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    // readers with a task running on the pool; a cancelled task that never started never joins
+    private final Set<AlienReader> busy = ConcurrentHashMap.newKeySet();
+    // reader id -> what went wrong in its last round, for readers whose last round failed
+    private final Map<String, String> problems = new ConcurrentHashMap<>();
+    private final AtomicInteger nextStreamPort = new AtomicInteger(TagStream.DEFAULT_PORT);
+    private volatile boolean streaming = false;
+
+    public ReaderEngine() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), runnable -> {
+                    Thread thread = new Thread(runnable, "reader-poll-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Adds a reader, replacing any reader with the same id
+    public void addReader(AlienReader reader) {
+        AlienReader previous = readers.get(reader.getReaderId());
+        if (previous != null) {
+            previous.stopStream();
+            reader.setStreamPort(previous.getStreamPort());
+        } else {
+            // streaming readers each listen on their own port
+            reader.setStreamPort(nextStreamPort.getAndIncrement());
+        }
+        readers.put(reader.getReaderId(), reader);
+    }
+
+    public void removeReader(String readerId) {
+        AlienReader reader = readers.remove(readerId);
+        if (reader != null) {
+            problems.remove(readerId);
+            reader.stopStream();
+        }
+    }
+
+    // Readers whose last round failed, timed out or was skipped, with the reason
+    public Map<String, String> getProblems() {
+        return new TreeMap<>(problems);
+    }
+
+    public Collection<AlienReader> getReaders() {
+        return Collections.unmodifiableCollection(readers.values());
+    }
+
+    public int getReaderCount() {
+        return readers.size();
+    }
+
+    // Puts every reader in autonomous mode; pollAll then only drains what they pushed.
+    // A reader whose stream did not start fails every round, so it stays in getProblems().
+    public void startStreams() {
+        runOnAll(reader -> {
+            reader.startStream();
+            return Collections.emptyList();
+        }, 10_000);
+        streaming = true;
+    }
+
+    public void stopStreams() {
+        streaming = false;
+        runOnAll(reader -> {
+            reader.stopStream();
+            return Collections.emptyList();
+        }, 10_000);
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    // One "t" per reader (or one queue drain when streaming), all readers in parallel.
+    // Readers that have not answered within timeoutMs are skipped for this round.
+    public List<TagEvent> pollAll(long timeoutMs) {
+        return runOnAll(reader -> {
+            List<TagRead> reads = streaming ? reader.GetStreamedReads(0) : reader.GetTagReads();
+            if (reads == null && reader.getLastPollError() != null) {
+                throw reader.getLastPollError();
+            }
+            if (reads == null || reads.isEmpty()) {
+                return Collections.emptyList();
+            }
+            long receivedAt = System.currentTimeMillis();
+            List<TagEvent> events = new ArrayList<>(reads.size());
+            for (TagRead read : reads) {
+                events.add(new TagEvent(reader.getReaderId(), read, receivedAt));
+            }
+            return events;
+        }, timeoutMs);
+    }
+
+    public void shutdown() {
+        if (streaming) {
+            stopStreams();
+        }
+        executor.shutdownNow();
+    }
+
+    private interface ReaderTask {
+        List<TagEvent> run(AlienReader reader) throws Exception;
+    }
+
+    // Runs task on every reader that is not still busy with an earlier one and merges the results.
+    // Tasks not done within timeoutMs are cancelled and their readers reported.
+    private List<TagEvent> runOnAll(ReaderTask task, long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Map<AlienReader, Future<List<TagEvent>>> futures = new LinkedHashMap<>();
+        for (AlienReader reader : readers.values()) {
+            if (busy.contains(reader)) {
+                problems.put(reader.getReaderId(), "skipped, still busy with an earlier round");
+                continue;
+            }
+            try {
+                futures.put(reader, executor.submit(() -> {
+                    busy.add(reader);
+                    try {
+                        return task.run(reader);
+                    } finally {
+                        busy.remove(reader);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                problems.put(reader.getReaderId(), "skipped, too many readers waiting");
+            }
+        }
+        List<TagEvent> merged = new ArrayList<>();
+        for (Map.Entry<AlienReader, Future<List<TagEvent>>> entry : futures.entrySet()) {
+            String readerId = entry.getKey().getReaderId();
+            Future<List<TagEvent>> future = entry.getValue();
+            try {
+                merged.addAll(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                problems.remove(readerId);
+            } catch (TimeoutException e) {
+                // a task still in the queue never runs; one blocked on its socket stays busy
+                future.cancel(true);
+                problems.put(readerId, "no answer within " + timeoutMs + " ms");
+            } catch (ExecutionException e) {
+                problems.put(readerId, String.valueOf(e.getCause()));
+            } catch (CancellationException e) {
+                problems.put(readerId, "cancelled");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<List<TagEvent>> pending : futures.values()) {
+                    pending.cancel(true);
+                }
+                break;
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,195 @@
+import com.alien.enterpriseRFID.reader.AlienClass1Reader;
+import com.alien.enterpriseRFID.reader.AlienReaderCommandErrorException;
+import com.alien.enterpriseRFID.reader.AlienReaderConnectionException;
+import com.alien.enterpriseRFID.reader.AlienReaderException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Long-lived, authenticated connection to a single reader.
+// Sessions are shared per ip:port so every poll only costs one command round trip instead of
+// a full connect-login-close cycle. A dropped connection is reopened on the next command,
+// backing off exponentially while the reader stays unreachable.
+public class ReaderSession {
+    // EPC, antenna, read count and RSSI only: a fraction of the default Text reply per tag
+    public static final String COMPACT_TAGLIST_FORMAT = "%k,%a,%r,${RSSI}";
+
+    private static final Map<String, ReaderSession> sessions = new HashMap<>();
+
+    private static final long MIN_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    // Connections idle for longer than this are checked before they are trusted again
+    private static final long HEALTH_CHECK_IDLE_MS = 30_000;
+    private static final int COMMAND_TIMEOUT_MS = 3_000;
+
+    private final String readerIP;
+    private final int readerPort;
+    private String readerUserName;
+    private String readerPassword;
+    private final AlienClass1Reader reader = new AlienClass1Reader();
+
+    private long backoffMs = MIN_BACKOFF_MS;
+    private long nextAttemptAt = 0;
+    private long lastSuccessAt = 0;
+    private String tagListCustomFormat;
+    private volatile boolean customFormatActive = false;
+
+    private ReaderSession(String readerIP, int readerPort) {
+        this.readerIP = readerIP;
+        this.readerPort = readerPort;
+    }
+
+    // Returns the shared session for a reader, updating its credentials if they changed
+    public static ReaderSession get(String readerIP, int readerPort, String readerUserName, String readerPassword) {
+        String key = readerIP + ":" + readerPort;
+        ReaderSession session;
+        synchronized (sessions) {
+            session = sessions.get(key);
+            if (session == null) {
+                session = new ReaderSession(readerIP, readerPort);
+                sessions.put(key, session);
+            }
+        }
+        session.setCredentials(readerUserName, readerPassword);
+        return session;
+    }
+
+    // Closes every pooled session, e.g. when the app or GUI shuts down
+    public static void closeAll() {
+        synchronized (sessions) {
+            for (ReaderSession session : sessions.values()) {
+                session.close();
+            }
+            sessions.clear();
+        }
+    }
+
+    private synchronized void setCredentials(String readerUserName, String readerPassword) {
+        boolean changed = !equal(this.readerUserName, readerUserName) || !equal(this.readerPassword, readerPassword);
+        this.readerUserName = readerUserName;
+        this.readerPassword = readerPassword;
+        if (changed && reader.isOpen()) {
+            // Log in again with the new credentials on the next command
+            reader.close();
+        }
+    }
+
+    // Sends a single command over the pooled connection, reconnecting first if needed.
+    // A failed command drops the connection so the next call starts from a clean login.
+    public synchronized String doCommand(String command) throws AlienReaderException {
+        ensureOpen();
+        try {
+            String result = reader.doReaderCommand(command);
+            lastSuccessAt = System.currentTimeMillis();
+            return result;
+        } catch (AlienReaderException e) {
+            markBroken();
+            throw e;
+        }
+    }
+
+    // Asks the reader for TagListFormat = Custom with this layout every time the session logs in
+    public synchronized void setTagListCustomFormat(String customFormat) {
+        if (equal(tagListCustomFormat, customFormat)) {
+            return;
+        }
+        tagListCustomFormat = customFormat;
+        customFormatActive = false;
+        // Renegotiate on the next command
+        reader.close();
+    }
+
+    // Whether "t" currently replies in the custom format; false means the reader kept its Text format
+    public boolean isCustomFormatActive() {
+        return customFormatActive;
+    }
+
+    public String getTagListCustomFormat() {
+        return tagListCustomFormat;
+    }
+
+    public synchronized boolean isOpen() {
+        return reader.isOpen();
+    }
+
+    public synchronized void close() {
+        if (reader.isOpen()) {
+            reader.close();
+            System.out.println("Connection Closed.");
+        }
+    }
+
+    public String getReaderIP() {
+        return readerIP;
+    }
+
+    public int getReaderPort() {
+        return readerPort;
+    }
+
+    private void ensureOpen() throws AlienReaderException {
+        if (reader.isOpen() && isHealthy()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextAttemptAt) {
+            throw new AlienReaderConnectionException("Reader " + readerIP + ":" + readerPort
+                    + " unavailable, retrying in " + (nextAttemptAt - now) + " ms");
+        }
+        try {
+            reader.setConnection(readerIP, readerPort);
+            reader.setUsername(readerUserName);
+            reader.setPassword(readerPassword);
+            reader.setTimeOutMilliseconds(COMMAND_TIMEOUT_MS);
+            reader.open();
+            System.out.println("Connection established with RFID reader.");
+            applyTagListFormat();
+            backoffMs = MIN_BACKOFF_MS;
+            nextAttemptAt = 0;
+            lastSuccessAt = System.currentTimeMillis();
+        } catch (AlienReaderException e) {
+            markBroken();
+            throw e;
+        }
+    }
+
+    private void applyTagListFormat() throws AlienReaderException {
+        customFormatActive = false;
+        if (tagListCustomFormat == null) {
+            return;
+        }
+        try {
+            reader.setTagListCustomFormat(tagListCustomFormat);
+            reader.setTagListFormat("Custom");
+            customFormatActive = true;
+        } catch (AlienReaderCommandErrorException e) {
+            // Older firmware without custom tag lists keeps replying in Text
+            System.out.println("Reader rejected custom TagListFormat: " + e.getMessage());
+        }
+    }
+
+    // Cheap round trip on connections that have been idle long enough to have been dropped silently
+    private boolean isHealthy() {
+        if (System.currentTimeMillis() - lastSuccessAt < HEALTH_CHECK_IDLE_MS) {
+            return true;
+        }
+        try {
+            reader.getReaderName();
+            lastSuccessAt = System.currentTimeMillis();
+            return true;
+        } catch (AlienReaderException e) {
+            reader.close();
+            return false;
+        }
+    }
+
+    private void markBroken() {
+        reader.close();
+        nextAttemptAt = System.currentTimeMillis() + backoffMs;
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
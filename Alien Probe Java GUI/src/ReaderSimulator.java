@@ -0,0 +1,553 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Stands in for an ALR-F800 on localhost, speaking the reader's text command protocol as
+// AlienClass1Reader uses it: the login prompts, "\1"-prefixed commands answered with a
+// NUL-terminated reply, get/set of attributes, "t" (get TagList) in Text, Terse or Custom
+// TagListFormat, and autonomous mode pushing "#Alien RFID Reader Tag Stream" messages to
+// TagStreamAddress. The tags come from a SimulatedTagField, or from a recorded ReaderTranscript.
+// Response delay and packet loss (a reply or stream message that never arrives) are adjustable
+// while it runs, so ReaderSession, TagStream and everything above them can be load-tested without
+// a reader on the desk.
+//
+//   java ReaderSimulator [--port 2323] [--tags 200] [--arrivals 2] [--dwell-ms 60000]
+//                        [--reads 10] [--delay-ms 5] [--loss 0] [--replay transcript.txt]
+//   java ReaderSimulator --record transcript.txt --reader 10.1.60.5:23 [--port 2323]
+public class ReaderSimulator implements Closeable {
+    public static final int DEFAULT_PORT = 2323;
+    public static final String DEFAULT_USERNAME = "alien";
+    public static final String DEFAULT_PASSWORD = "password";
+    // a streaming reader reports what it read this often
+    public static final long STREAM_CYCLE_MS = 100;
+
+    // Told about the tags in every TagList reply and stream message as it is built,
+    // e.g. to time their trip through the client; called on the simulator's threads
+    public interface TagObserver {
+        void onTags(List<SimulatedTagField.Tag> tags);
+    }
+
+    private static final byte COMMAND_PREFIX = 1;
+    private static final String TIME_FORMAT = "yyyy/MM/dd HH:mm:ss.SSS";
+
+    private final SimulatedTagField field;
+    private final ReaderTranscript transcript; // null unless replaying
+    private final ServerSocket server;
+    private final ScheduledExecutorService streamTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "reader-simulator-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Random random = new Random();
+    private final List<Socket> connections = new ArrayList<>();
+    // reader attributes by lower-case name; each value is {name as the reader spells it, value}
+    private final Map<String, String[]> attributes = new TreeMap<>();
+    private volatile String username = DEFAULT_USERNAME;
+    private volatile String password = DEFAULT_PASSWORD;
+    private volatile long responseDelayMs;
+    private volatile double packetLoss;
+    private volatile TagObserver tagObserver;
+    private Socket streamSocket; // stream timer thread only
+    private volatile boolean reconnectStream;
+    private volatile boolean closed;
+
+    public ReaderSimulator(int port, SimulatedTagField field) throws IOException {
+        this(port, field, null);
+    }
+
+    // Answers "t" from the transcript's recorded tag lists, in order, and every other recorded command as recorded
+    public ReaderSimulator(int port, ReaderTranscript transcript) throws IOException {
+        this(port, SimulatedTagField.staticField(0, 0), transcript);
+    }
+
+    private ReaderSimulator(int port, SimulatedTagField field, ReaderTranscript transcript) throws IOException {
+        this.field = field;
+        this.transcript = transcript;
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        setAttribute("ReaderName", "Alien RFID Reader");
+        setAttribute("ReaderType", "Alien RFID Tag Reader, Model: ALR-F800 (Four Antenna / Gen 2 / 902-928 MHz)");
+        setAttribute("ReaderVersion", "22.05.01.00 (simulated)");
+        setAttribute("MACAddress", "00:1B:5F:00:00:01");
+        setAttribute("TagListFormat", "Text");
+        setAttribute("TagListCustomFormat", "%k");
+        setAttribute("TagStreamAddress", "");
+        setAttribute("TagStreamFormat", "Text");
+        setAttribute("TagStreamMode", "Off");
+        setAttribute("AutoMode", "Off");
+        setAttribute("PersistTime", "-1");
+        Thread acceptor = new Thread(this::acceptLoop, "reader-simulator-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        streamTimer.scheduleAtFixedRate(this::streamCycle, STREAM_CYCLE_MS, STREAM_CYCLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public SimulatedTagField getField() {
+        return field;
+    }
+
+    public void setCredentials(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    // Added to every reply (and stream message), on top of the time to build it
+    public void setResponseDelayMs(long responseDelayMs) {
+        this.responseDelayMs = responseDelayMs;
+    }
+
+    // Fraction of replies and stream messages silently dropped, 0 to 1
+    public void setPacketLoss(double packetLoss) {
+        this.packetLoss = packetLoss;
+    }
+
+    public void setTagObserver(TagObserver tagObserver) {
+        this.tagObserver = tagObserver;
+    }
+
+    public synchronized void setAttribute(String name, String value) {
+        attributes.put(name.toLowerCase(Locale.ROOT), new String[]{name, value});
+    }
+
+    public synchronized String getAttribute(String name) {
+        String[] attribute = attributes.get(name.toLowerCase(Locale.ROOT));
+        return attribute == null ? null : attribute[1];
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        streamTimer.shutdownNow();
+        server.close();
+        synchronized (this) {
+            for (Socket socket : connections) {
+                socket.close();
+            }
+            connections.clear();
+        }
+        try {
+            streamTimer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeStream();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                synchronized (this) {
+                    connections.add(socket);
+                }
+                Thread thread = new Thread(() -> serve(socket), "reader-simulator-client");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.out.println("Reader simulator: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // One command connection: banner, login, then commands until "q" or the client hangs up
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            InputStream in = s.getInputStream();
+            OutputStream out = new BufferedOutputStream(s.getOutputStream());
+            write(out, "\r\n*********************************************\r\n"
+                    + "*  Alien Technology : RFID Reader (simulated) *\r\n"
+                    + "*********************************************\r\n\r\nUsername>", (byte) 0);
+            ReaderTranscript.Replay replay = transcript == null ? null : transcript.replay();
+            boolean loggedIn = false;
+            String user = null;
+            String line;
+            while ((line = readLine(in)) != null) {
+                boolean quiet = !line.isEmpty() && line.charAt(0) == COMMAND_PREFIX;
+                String command = (quiet ? line.substring(1) : line).trim();
+                if (!loggedIn) {
+                    // the client sends the username, then the password, as commands of their own
+                    if (user == null) {
+                        user = command;
+                        write(out, "Password>", (byte) 0);
+                        continue;
+                    }
+                    if (user.equals(username) && command.equals(password)) {
+                        loggedIn = true;
+                        write(out, "\r\n", (byte) 0);
+                    } else {
+                        user = null;
+                        write(out, "Error: Invalid Username and/or Password.\r\nUsername>", (byte) 0);
+                    }
+                    continue;
+                }
+                if (command.equalsIgnoreCase("q") || command.equalsIgnoreCase("quit") || command.equalsIgnoreCase("exit")) {
+                    write(out, "Goodbye!\r\n", (byte) 0);
+                    return;
+                }
+                ReaderTranscript.Exchange recorded = replay == null ? null : replay.next(command);
+                if (recorded != null) {
+                    // as slow as the real reader was
+                    sleep(recorded.getLatencyMs());
+                    respond(out, recorded.getReply(), quiet);
+                } else {
+                    respond(out, execute(command), quiet);
+                }
+            }
+        } catch (IOException e) {
+            // client hung up
+        } finally {
+            synchronized (this) {
+                connections.remove(socket);
+            }
+        }
+    }
+
+    private void respond(OutputStream out, String reply, boolean quiet) throws IOException {
+        sleep(responseDelayMs);
+        if (random.nextDouble() < packetLoss) {
+            // lost on the way: the client times out waiting
+            return;
+        }
+        if (quiet) {
+            write(out, reply + "\r\n", (byte) 0);
+        } else {
+            write(out, reply + "\r\n\r\nAlien>", (byte) -1);
+        }
+    }
+
+    // The reply to one command, as the reader would give it
+    String execute(String command) {
+        String lower = command.toLowerCase(Locale.ROOT);
+        if (lower.isEmpty()) {
+            // the client sends a bare line after logging in; the reader just answers
+            return "";
+        }
+        if (lower.equals("t") || lower.equals("get taglist") || lower.equals("taglist?")) {
+            List<SimulatedTagField.Tag> tags = field.tagList(System.currentTimeMillis());
+            notifyObserver(tags);
+            return tagList(tags, getAttribute("TagListFormat"), getAttribute("TagListCustomFormat"));
+        }
+        if (lower.equals("clear taglist") || lower.equals("clear")) {
+            field.clear();
+            return "Tag List has been cleared!";
+        }
+        if (lower.startsWith("get ") || lower.endsWith("?")) {
+            String name = lower.startsWith("get ") ? command.substring(4).trim() : command.substring(0, command.length() - 1).trim();
+            if (name.equalsIgnoreCase("Time")) {
+                return "Time = " + new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(new Date());
+            }
+            synchronized (this) {
+                String[] attribute = attributes.get(name.toLowerCase(Locale.ROOT));
+                if (attribute == null) {
+                    return "Error 1: Command not understood.";
+                }
+                return attribute[0] + " = " + attribute[1];
+            }
+        }
+        if (lower.startsWith("set ") && command.indexOf('=') > 0) {
+            int equals = command.indexOf('=');
+            String name = command.substring(4, equals).trim();
+            String value = command.substring(equals + 1).trim();
+            return set(name, value);
+        }
+        return "Error 1: Command not understood.";
+    }
+
+    private synchronized String set(String name, String value) {
+        String key = name.toLowerCase(Locale.ROOT);
+        String[] attribute = attributes.get(key);
+        if (attribute == null) {
+            return "Error 1: Command not understood.";
+        }
+        if (key.equals("taglistformat") || key.equals("tagstreamformat")) {
+            String format = canonical(value, "Text", "Terse", "Custom");
+            if (format == null) {
+                return "Error 3: Invalid value: " + value;
+            }
+            value = format;
+        } else if (key.equals("tagstreammode") || key.equals("automode")) {
+            String mode = canonical(value, "On", "Off");
+            if (mode == null) {
+                return "Error 3: Invalid value: " + value;
+            }
+            value = mode;
+        }
+        attribute[1] = value;
+        if (key.equals("tagstreammode") || key.equals("automode") || key.equals("tagstreamaddress")) {
+            // reconnected with the new settings on the next cycle
+            reconnectStream = true;
+        }
+        return attribute[0] + " = " + value;
+    }
+
+    // Pushes what was read since the last cycle to TagStreamAddress, while autonomous mode is on
+    private void streamCycle() {
+        if (reconnectStream) {
+            reconnectStream = false;
+            closeStream();
+        }
+        String address;
+        String format;
+        String customFormat;
+        synchronized (this) {
+            if (!"On".equals(getAttribute("AutoMode")) || !"On".equals(getAttribute("TagStreamMode"))) {
+                return;
+            }
+            address = getAttribute("TagStreamAddress");
+            format = getAttribute("TagStreamFormat");
+            customFormat = getAttribute("TagListCustomFormat");
+        }
+        List<SimulatedTagField.Tag> reads = field.drainReads(System.currentTimeMillis());
+        if (reads.isEmpty() || address == null || address.lastIndexOf(':') < 0) {
+            return;
+        }
+        sleep(responseDelayMs);
+        if (random.nextDouble() < packetLoss) {
+            return;
+        }
+        notifyObserver(reads);
+        StringBuilder message = new StringBuilder(64 + reads.size() * 128);
+        message.append("#Alien RFID Reader Tag Stream\r\n")
+                .append("#ReaderName: ").append(getAttribute("ReaderName")).append("\r\n")
+                .append("#Hostname: localhost\r\n")
+                .append("#IPAddress: 127.0.0.1\r\n")
+                .append("#CommandPort: ").append(getPort()).append("\r\n")
+                .append("#MACAddress: ").append(getAttribute("MACAddress")).append("\r\n")
+                .append("#Time: ").append(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(new Date())).append("\r\n")
+                .append(tagList(reads, format, customFormat)).append("\r\n");
+        // written without the simulator's lock, so a slow listener never holds up commands
+        try {
+            if (streamSocket == null) {
+                int colon = address.lastIndexOf(':');
+                streamSocket = new Socket();
+                streamSocket.connect(new InetSocketAddress(address.substring(0, colon),
+                        Integer.parseInt(address.substring(colon + 1).trim())), 1000);
+                streamSocket.setTcpNoDelay(true);
+            }
+            write(streamSocket.getOutputStream(), message, (byte) 0);
+        } catch (IOException | NumberFormatException e) {
+            // listener not up yet or gone; the reads are lost, as they would be on a real reader
+            closeStream();
+        }
+    }
+
+    private void notifyObserver(List<SimulatedTagField.Tag> tags) {
+        TagObserver observer = tagObserver;
+        if (observer != null && !tags.isEmpty()) {
+            observer.onTags(tags);
+        }
+    }
+
+    private void closeStream() {
+        if (streamSocket != null) {
+            try {
+                streamSocket.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+            streamSocket = null;
+        }
+    }
+
+    // Renders tags the way the reader's TagListFormat does
+    static String tagList(List<SimulatedTagField.Tag> tags, String format, String customFormat) {
+        if (tags.isEmpty()) {
+            return "(No Tags)";
+        }
+        SimpleDateFormat time = new SimpleDateFormat(TIME_FORMAT);
+        StringBuilder out = new StringBuilder(tags.size() * 128);
+        for (SimulatedTagField.Tag tag : tags) {
+            if (out.length() > 0) {
+                out.append("\r\n");
+            }
+            if ("Custom".equalsIgnoreCase(format)) {
+                appendCustom(out, tag, customFormat, time);
+            } else if ("Terse".equalsIgnoreCase(format)) {
+                appendSpaced(out, tag.getEpc());
+                out.append(',').append(tag.getCount()).append(',').append(tag.getAntenna());
+            } else {
+                out.append("Tag:");
+                appendSpaced(out, tag.getEpc());
+                out.append(", Disc:").append(time.format(new Date(tag.getDiscovered())))
+                        .append(", Last:").append(time.format(new Date(tag.getLastSeen())))
+                        .append(", Count:").append(tag.getCount())
+                        .append(", Ant:").append(tag.getAntenna())
+                        .append(", Proto:2");
+            }
+        }
+        return out.toString();
+    }
+
+    private static void appendCustom(StringBuilder out, SimulatedTagField.Tag tag, String format, SimpleDateFormat time) {
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c == '%' && i + 1 < format.length()) {
+                char field = format.charAt(++i);
+                switch (field) {
+                    case 'k': out.append(tag.getEpc()); break;
+                    case 'i': appendSpaced(out, tag.getEpc()); break;
+                    case 'a': case 'A': out.append(tag.getAntenna()); break;
+                    case 'r': out.append(tag.getCount()); break;
+                    case 'm': out.append(String.format(Locale.ROOT, "%.1f", tag.getRssi())); break;
+                    case 'd': out.append(time.format(new Date(tag.getDiscovered())), 0, 10); break;
+                    case 't': out.append(time.format(new Date(tag.getDiscovered())), 11, 23); break;
+                    case 'D': out.append(time.format(new Date(tag.getLastSeen())), 0, 10); break;
+                    case 'T': out.append(time.format(new Date(tag.getLastSeen())), 11, 23); break;
+                    default: out.append('%').append(field);
+                }
+            } else if (c == '$' && format.startsWith("${", i) && format.indexOf('}', i) > 0) {
+                int close = format.indexOf('}', i);
+                String name = format.substring(i + 2, close);
+                switch (name) {
+                    case "TAGID": case "TAGIDB": case "TAGIDW": out.append(tag.getEpc()); break;
+                    case "TX": case "RX": out.append(tag.getAntenna()); break;
+                    case "COUNT": out.append(tag.getCount()); break;
+                    case "RSSI": out.append(String.format(Locale.ROOT, "%.1f", tag.getRssi())); break;
+                    case "MSEC1": out.append(tag.getDiscovered()); break;
+                    case "MSEC2": out.append(tag.getLastSeen()); break;
+                    default: out.append(format, i, close + 1);
+                }
+                i = close;
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    // EPC in groups of four, as the Text and Terse formats print it
+    private static void appendSpaced(StringBuilder out, String epc) {
+        for (int i = 0; i < epc.length(); i += 4) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(epc, i, Math.min(epc.length(), i + 4));
+        }
+    }
+
+    private static String canonical(String value, String... choices) {
+        for (String choice : choices) {
+            if (choice.equalsIgnoreCase(value)) {
+                return choice;
+            }
+        }
+        return null;
+    }
+
+    // A line up to "\n", without the line ending; null when the client has hung up
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                int end = line.length();
+                if (end > 0 && line.charAt(end - 1) == '\r') {
+                    line.setLength(end - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    // terminator -1 for none
+    private static void write(OutputStream out, CharSequence text, byte terminator) throws IOException {
+        out.write(text.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (terminator >= 0) {
+            out.write(terminator);
+        }
+        out.flush();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        int tags = 200;
+        double arrivals = 2;
+        long dwellMs = 60_000;
+        double reads = 10;
+        long delayMs = 5;
+        double loss = 0;
+        String replay = null;
+        String record = null;
+        String reader = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--tags": tags = Integer.parseInt(value); break;
+                case "--arrivals": arrivals = Double.parseDouble(value); break;
+                case "--dwell-ms": dwellMs = Long.parseLong(value); break;
+                case "--reads": reads = Double.parseDouble(value); break;
+                case "--delay-ms": delayMs = Long.parseLong(value); break;
+                case "--loss": loss = Double.parseDouble(value); break;
+                case "--replay": replay = value; break;
+                case "--record": record = value; break;
+                case "--reader": reader = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (record != null) {
+            if (reader == null || reader.lastIndexOf(':') < 0) {
+                throw new IllegalArgumentException("--record needs --reader host:port");
+            }
+            int colon = reader.lastIndexOf(':');
+            ReaderTranscript.Recorder recorder = new ReaderTranscript.Recorder(new File(record), port,
+                    reader.substring(0, colon), Integer.parseInt(reader.substring(colon + 1)));
+            System.out.println("Recording " + reader + " to " + record + "; point the client at localhost:" + recorder.getPort());
+            Thread.currentThread().join();
+            return;
+        }
+        ReaderSimulator simulator;
+        if (replay != null) {
+            simulator = new ReaderSimulator(port, ReaderTranscript.load(new File(replay)));
+        } else {
+            SimulatedTagField field = new SimulatedTagField(System.nanoTime(), tags, arrivals, dwellMs);
+            field.setReadsPerSecond(reads);
+            simulator = new ReaderSimulator(port, field);
+        }
+        simulator.setResponseDelayMs(delayMs);
+        simulator.setPacketLoss(loss);
+        System.out.println("Simulated reader on localhost:" + simulator.getPort()
+                + " (" + DEFAULT_USERNAME + "/" + DEFAULT_PASSWORD + ")");
+        Thread.currentThread().join();
+    }
+}
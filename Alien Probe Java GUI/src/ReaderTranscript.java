@@ -0,0 +1,313 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+// A conversation with a real reader: each command, how long the reader took to answer it, and the
+// answer. Recorder captures one by sitting between the client and the reader; ReaderSimulator
+// plays one back, so a problem seen in the field (an odd reply, a slow reader, a lot of tags)
+// can be reproduced on localhost. The file is plain text:
+//
+//   > 1523 t           command, sent 1523 ms after recording started
+//   = 38               the reader answered 38 ms later
+//   < Tag:3030 ...     the reply, one line each
+//
+// The username and password are never written; they are recorded as "*".
+public class ReaderTranscript {
+
+    public static final class Exchange {
+        private final long atMs;
+        private final String command;
+        private final long latencyMs;
+        private final String reply;
+
+        Exchange(long atMs, String command, long latencyMs, String reply) {
+            this.atMs = atMs;
+            this.command = command;
+            this.latencyMs = latencyMs;
+            this.reply = reply;
+        }
+
+        public long getAtMs() { return atMs; }
+        public String getCommand() { return command; }
+        public long getLatencyMs() { return latencyMs; }
+        public String getReply() { return reply; }
+    }
+
+    // Hands out recorded replies for one connection. A command gets the reply recorded after the
+    // last one handed out, so repeated "t"s step through the recorded tag lists in order, and
+    // start over at the end.
+    public final class Replay {
+        private int next;
+
+        // null if the command was never recorded
+        public synchronized Exchange next(String command) {
+            String key = normalize(command);
+            int size = exchanges.size();
+            for (int i = 0; i < size; i++) {
+                int index = (next + i) % size;
+                Exchange exchange = exchanges.get(index);
+                if (normalize(exchange.command).equals(key)) {
+                    next = index + 1;
+                    return exchange;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final List<Exchange> exchanges;
+
+    private ReaderTranscript(List<Exchange> exchanges) {
+        this.exchanges = Collections.unmodifiableList(exchanges);
+    }
+
+    public List<Exchange> getExchanges() {
+        return exchanges;
+    }
+
+    public Replay replay() {
+        return new Replay();
+    }
+
+    public static ReaderTranscript load(File file) throws IOException {
+        List<Exchange> exchanges = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            long atMs = 0;
+            String command = null;
+            long latencyMs = 0;
+            StringBuilder reply = null;
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.startsWith(">")) {
+                    if (command != null) {
+                        exchanges.add(new Exchange(atMs, command, latencyMs, reply.toString()));
+                    }
+                    String rest = line.substring(1).trim();
+                    int space = rest.indexOf(' ');
+                    try {
+                        atMs = Long.parseLong(space < 0 ? rest : rest.substring(0, space));
+                    } catch (NumberFormatException e) {
+                        throw new IOException(file + ":" + lineNumber + ": bad command line: " + line);
+                    }
+                    command = space < 0 ? "" : rest.substring(space + 1);
+                    latencyMs = 0;
+                    reply = new StringBuilder();
+                } else if (line.startsWith("=") && command != null) {
+                    try {
+                        latencyMs = Long.parseLong(line.substring(1).trim());
+                    } catch (NumberFormatException e) {
+                        throw new IOException(file + ":" + lineNumber + ": bad latency line: " + line);
+                    }
+                } else if (line.startsWith("<") && command != null) {
+                    if (reply.length() > 0) {
+                        reply.append("\r\n");
+                    }
+                    reply.append(line.startsWith("< ") ? line.substring(2) : line.substring(1));
+                }
+                // anything else is a comment
+            }
+            if (command != null) {
+                exchanges.add(new Exchange(atMs, command, latencyMs, reply.toString()));
+            }
+        }
+        return new ReaderTranscript(exchanges);
+    }
+
+    private static String normalize(String command) {
+        String trimmed = command.trim();
+        if (!trimmed.isEmpty() && trimmed.charAt(0) == 1) {
+            trimmed = trimmed.substring(1).trim();
+        }
+        return trimmed.replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // A proxy on localhost that forwards every connection to a real reader, unchanged, and writes
+    // what passes through to a transcript. Replies are told apart by the reader's terminators: NUL
+    // for "\1" commands, the "Alien>" prompt otherwise.
+    public static class Recorder implements Closeable {
+        private final ServerSocket server;
+        private final PrintWriter out;
+        private final String readerHost;
+        private final int readerPort;
+        private final long startedAt = System.currentTimeMillis();
+        private volatile boolean closed;
+
+        public Recorder(File file, int port, String readerHost, int readerPort) throws IOException {
+            this.readerHost = readerHost;
+            this.readerPort = readerPort;
+            this.out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+            out.println("# Alien reader transcript, recorded " + new Date(startedAt) + " from " + readerHost + ":" + readerPort);
+            out.flush();
+            server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            Thread acceptor = new Thread(this::acceptLoop, "transcript-recorder");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        public int getPort() {
+            return server.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            server.close();
+            synchronized (out) {
+                out.close();
+            }
+        }
+
+        private void acceptLoop() {
+            while (!closed) {
+                try {
+                    Socket client = server.accept();
+                    Socket reader = new Socket();
+                    try {
+                        reader.connect(new InetSocketAddress(readerHost, readerPort), 5000);
+                    } catch (IOException e) {
+                        System.out.println("Transcript recorder: can't reach " + readerHost + ":" + readerPort + ": " + e.getMessage());
+                        client.close();
+                        reader.close();
+                        continue;
+                    }
+                    client.setTcpNoDelay(true);
+                    reader.setTcpNoDelay(true);
+                    Connection connection = new Connection();
+                    start(() -> connection.commands(client, reader));
+                    start(() -> connection.replies(reader, client));
+                } catch (IOException e) {
+                    if (!closed) {
+                        System.out.println("Transcript recorder: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private static void start(Runnable pump) {
+            Thread thread = new Thread(pump, "transcript-recorder-pump");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        // One client's connection; commands wait here for the reply that answers them
+        private final class Connection {
+            private final ArrayDeque<Long> sentAt = new ArrayDeque<>();
+            private final ArrayDeque<String> pending = new ArrayDeque<>();
+            private int commandsSeen;
+
+            void commands(Socket client, Socket reader) {
+                try (Socket c = client; Socket r = reader) {
+                    InputStream in = c.getInputStream();
+                    OutputStream forward = r.getOutputStream();
+                    ByteArrayOutputStream line = new ByteArrayOutputStream();
+                    int b;
+                    while ((b = in.read()) >= 0) {
+                        forward.write(b);
+                        if (b != '\n') {
+                            line.write(b);
+                            continue;
+                        }
+                        forward.flush();
+                        String command = line.toString(StandardCharsets.ISO_8859_1.name()).trim();
+                        line.reset();
+                        synchronized (this) {
+                            // the client logs in with its first two lines
+                            pending.add(++commandsSeen <= 2 ? "*" : normalizeSpacing(command));
+                            sentAt.add(System.currentTimeMillis());
+                        }
+                    }
+                } catch (IOException e) {
+                    // either side hung up
+                }
+            }
+
+            void replies(Socket reader, Socket client) {
+                try (Socket r = reader; Socket c = client) {
+                    InputStream in = r.getInputStream();
+                    OutputStream forward = c.getOutputStream();
+                    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                    int b;
+                    while ((b = in.read()) >= 0) {
+                        forward.write(b);
+                        if (b != 0) {
+                            reply.write(b);
+                            if (b != '>' || !reply.toString(StandardCharsets.ISO_8859_1.name()).endsWith("Alien>")) {
+                                continue;
+                            }
+                        }
+                        forward.flush();
+                        String text = reply.toString(StandardCharsets.ISO_8859_1.name());
+                        reply.reset();
+                        record(text);
+                    }
+                } catch (IOException e) {
+                    // either side hung up
+                }
+            }
+
+            private void record(String reply) {
+                long now = System.currentTimeMillis();
+                String command;
+                long sent;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        // the banner, or a prompt nothing asked for
+                        return;
+                    }
+                    command = pending.poll();
+                    sent = sentAt.poll();
+                }
+                String body = reply;
+                if (body.endsWith("Alien>")) {
+                    body = body.substring(0, body.length() - "Alien>".length());
+                }
+                body = body.replaceAll("[\r\n]+$", "");
+                if (command.equals("*")) {
+                    body = "";
+                }
+                synchronized (out) {
+                    out.println("> " + (sent - startedAt) + " " + command);
+                    out.println("= " + (now - sent));
+                    if (!body.isEmpty()) {
+                        for (String line : body.split("\r?\n", -1)) {
+                            out.println("< " + line);
+                        }
+                    }
+                    out.flush();
+                }
+            }
+        }
+
+        private static String normalizeSpacing(String command) {
+            if (!command.isEmpty() && command.charAt(0) == 1) {
+                command = command.substring(1);
+            }
+            return command.trim();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The reads table: one row per EPC with its running totals (count, first/last seen, latest
+// reader, antenna and RSSI), newest tag last. Rows live in a ring of at most maxRows; when it is
+// full, a new tag pushes out the one that appeared longest ago. Reads can be added from any
+// thread and are applied on the EDT once per frame, with at most one delete, one update and one
+// insert event per frame however many reads came in, so the table's cost does not grow with the
+// read rate or the length of the run.
+public class ReadsTableModel extends AbstractTableModel {
+    public static final int DEFAULT_MAX_ROWS = 10_000;
+    public static final int FRAME_MS = 33;
+    // reads waiting for the next frame; beyond this they are dropped (and counted) rather than queued
+    private static final int MAX_PENDING = 100_000;
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = {"EPC", "Reader", "Antenna", "Count", "RSSI", "First seen", "Last seen"};
+
+    // Running totals for one EPC
+    public static final class Row {
+        final TagRead epc;
+        final long seq; // position in the ring, counted from the first row ever added
+        String readerId;
+        int antenna;
+        float rssi = Float.NaN;
+        long count;
+        long firstSeen;
+        long lastSeen;
+
+        Row(TagEvent event, long seq) {
+            this.epc = event.getRead();
+            this.seq = seq;
+            this.firstSeen = event.getReceivedAt();
+        }
+
+        void add(TagEvent event) {
+            TagRead read = event.getRead();
+            readerId = event.getReaderId();
+            antenna = read.getAntenna();
+            if (read.hasRssi()) {
+                rssi = read.getRssi();
+            }
+            count += Math.max(1, read.getCount());
+            firstSeen = Math.min(firstSeen, event.getReceivedAt());
+            lastSeen = Math.max(lastSeen, event.getReceivedAt());
+        }
+
+        // The row as one read, with the totals in count and first/last seen
+        public TagEvent toEvent() {
+            TagRead read = new TagRead(epc.getEpcHi(), epc.getEpcLo(), epc.getEpcDigits(), antenna, rssi,
+                    (int) Math.min(count, Integer.MAX_VALUE), firstSeen, lastSeen);
+            return new TagEvent(readerId, read, lastSeen);
+        }
+    }
+
+    // EPC as a map key, without building its string
+    private static final class EpcKey {
+        final long hi;
+        final long lo;
+        final int digits;
+
+        EpcKey(TagRead read) {
+            this.hi = read.getEpcHi();
+            this.lo = read.getEpcLo();
+            this.digits = read.getEpcDigits();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof EpcKey)) return false;
+            EpcKey other = (EpcKey) o;
+            return hi == other.hi && lo == other.lo && digits == other.digits;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = hi * 0x9E3779B97F4A7C15L + lo + digits;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private final int maxRows;
+    private final BlockingQueue<TagEvent> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Timer frameTimer;
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+    private final Date date = new Date();
+
+    // EDT only from here down
+    private final Row[] ring;
+    private final Map<EpcKey, Row> rows = new HashMap<>();
+    private final List<TagEvent> batch = new ArrayList<>();
+    private long firstSeq; // seq of row 0
+    private long endSeq;   // seq the next new row gets
+    private long reads;
+
+    public ReadsTableModel(int maxRows) {
+        this.maxRows = maxRows;
+        this.ring = new Row[maxRows];
+        frameTimer = new Timer(FRAME_MS, e -> applyPending());
+    }
+
+    public ReadsTableModel() {
+        this(DEFAULT_MAX_ROWS);
+    }
+
+    // Starts applying reads once per frame; call on the EDT
+    public void start() {
+        frameTimer.start();
+    }
+
+    public void stop() {
+        frameTimer.stop();
+    }
+
+    // Queues a read for the next frame; any thread
+    public void add(TagEvent event) {
+        if (!pending.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public void addAll(List<TagEvent> events) {
+        for (TagEvent event : events) {
+            add(event);
+        }
+    }
+
+    // Reads dropped because frames fell too far behind
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Reads applied to the table so far
+    public long getReadCount() {
+        return reads;
+    }
+
+    // Rows as reads, oldest first; EDT
+    public List<TagEvent> snapshot() {
+        List<TagEvent> events = new ArrayList<>(getRowCount());
+        for (int i = 0; i < getRowCount(); i++) {
+            events.add(rowAt(i).toEvent());
+        }
+        return events;
+    }
+
+    // Forgets every row and every read still waiting; EDT
+    public void clear() {
+        pending.clear();
+        rows.clear();
+        Arrays.fill(ring, null);
+        firstSeq = endSeq;
+        reads = 0;
+        fireTableDataChanged();
+    }
+
+    // Applies the reads queued since the last frame and tells the table what moved; EDT
+    public void applyPending() {
+        pending.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        long oldFirst = firstSeq;
+        long oldEnd = endSeq;
+        long updatedMin = Long.MAX_VALUE;
+        long updatedMax = Long.MIN_VALUE;
+        for (TagEvent event : batch) {
+            EpcKey key = new EpcKey(event.getRead());
+            Row row = rows.get(key);
+            if (row == null) {
+                if (endSeq - firstSeq == maxRows) {
+                    evictOldest();
+                }
+                row = new Row(event, endSeq++);
+                ring[(int) (row.seq % maxRows)] = row;
+                rows.put(key, row);
+            } else if (row.seq < oldEnd) {
+                updatedMin = Math.min(updatedMin, row.seq);
+                updatedMax = Math.max(updatedMax, row.seq);
+            }
+            row.add(event);
+        }
+        reads += batch.size();
+        batch.clear();
+
+        // old rows pushed out, old rows changed, new rows still in the ring
+        long deleted = Math.min(firstSeq, oldEnd) - oldFirst;
+        long survivorsEnd = Math.max(firstSeq, oldEnd);
+        if (deleted > 0) {
+            fireTableRowsDeleted(0, (int) deleted - 1);
+        }
+        updatedMin = Math.max(updatedMin, firstSeq);
+        if (updatedMin <= updatedMax) {
+            fireTableRowsUpdated((int) (updatedMin - firstSeq), (int) (updatedMax - firstSeq));
+        }
+        if (endSeq > survivorsEnd) {
+            fireTableRowsInserted((int) (survivorsEnd - firstSeq), (int) (endSeq - firstSeq) - 1);
+        }
+    }
+
+    private void evictOldest() {
+        int slot = (int) (firstSeq % maxRows);
+        rows.remove(new EpcKey(ring[slot].epc));
+        ring[slot] = null;
+        firstSeq++;
+    }
+
+    private Row rowAt(int rowIndex) {
+        return ring[(int) ((firstSeq + rowIndex) % maxRows)];
+    }
+
+    @Override
+    public int getRowCount() {
+        return (int) (endSeq - firstSeq);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case 2: return Integer.class;
+            case 3: return Long.class;
+            case 4: return Float.class;
+            default: return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Row row = rowAt(rowIndex);
+        switch (columnIndex) {
+            case 0: return row.epc.getEPC();
+            case 1: return row.readerId;
+            case 2: return row.antenna == TagRead.NO_ANTENNA ? null : row.antenna;
+            case 3: return row.count;
+            case 4: return Float.isNaN(row.rssi) ? null : row.rssi;
+            case 5: return formatTime(row.firstSeen);
+            case 6: return formatTime(row.lastSeen);
+            default: return null;
+        }
+    }
+
+    private String formatTime(long millis) {
+        date.setTime(millis);
+        return timeFormat.format(date);
+    }
+}
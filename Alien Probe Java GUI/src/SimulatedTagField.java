@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// The tags in front of a simulated reader (see ReaderSimulator). Tags arrive as a Poisson process,
+// stay for an exponentially distributed time around meanDwellMs, and while present are read
+// readsPerSecond times a second on one antenna at a roughly steady RSSI. The model is advanced
+// lazily to whatever time the reader asks about, so it costs nothing between commands.
+// Reads per second at the reader is about (tags present) x readsPerSecond, with
+// arrivalsPerSecond x meanDwellMs / 1000 tags present once the field has settled.
+public class SimulatedTagField {
+
+    // One tag in the field, with the totals a TagList line reports
+    public static final class Tag {
+        final String epc;
+        final int antenna;
+        final float rssi;
+        final long leavesAt;
+        long discovered;
+        long lastSeen;
+        int count;      // reads since it arrived
+        int unreported; // reads since it was last streamed
+        double pending; // fractional reads carried over between steps
+
+        Tag(String epc, int antenna, float rssi, long now, long leavesAt) {
+            this.epc = epc;
+            this.antenna = antenna;
+            this.rssi = rssi;
+            this.discovered = now;
+            this.lastSeen = now;
+            this.leavesAt = leavesAt;
+        }
+
+        Tag copy() {
+            Tag copy = new Tag(epc, antenna, rssi, discovered, leavesAt);
+            copy.lastSeen = lastSeen;
+            copy.count = count;
+            return copy;
+        }
+
+        public String getEpc() { return epc; }
+        public int getAntenna() { return antenna; }
+        public float getRssi() { return rssi; }
+        public long getDiscovered() { return discovered; }
+        public long getLastSeen() { return lastSeen; }
+        public int getCount() { return count; }
+    }
+
+    private final Random random;
+    private final Map<String, Tag> present = new LinkedHashMap<>();
+    private volatile double arrivalsPerSecond;
+    private volatile long meanDwellMs;
+    private volatile double readsPerSecond = 10;
+    private volatile float rssiMin = -70;
+    private volatile float rssiMax = -45;
+    private volatile int antennas = 4;
+    private long nextArrivalAt;
+    private long advancedTo;
+    private long serial;
+    private long totalReads;
+
+    // Starts with initialTags already present; the rest arrive and leave as configured
+    public SimulatedTagField(long seed, int initialTags, double arrivalsPerSecond, long meanDwellMs) {
+        this.random = new Random(seed);
+        this.arrivalsPerSecond = arrivalsPerSecond;
+        this.meanDwellMs = meanDwellMs;
+        long now = System.currentTimeMillis();
+        advancedTo = now;
+        for (int i = 0; i < initialTags; i++) {
+            arrive(now);
+        }
+        nextArrivalAt = now + nextArrivalGap();
+    }
+
+    // A fixed population that never changes, e.g. a parked lot
+    public static SimulatedTagField staticField(long seed, int tags) {
+        return new SimulatedTagField(seed, tags, 0, Long.MAX_VALUE);
+    }
+
+    // Every tag present at nowMillis, after its reads up to then; copies, safe to format on any thread
+    public synchronized List<Tag> tagList(long nowMillis) {
+        advance(nowMillis);
+        List<Tag> tags = new ArrayList<>(present.size());
+        for (Tag tag : present.values()) {
+            tags.add(tag.copy());
+        }
+        return tags;
+    }
+
+    // Tags read since the last call, once each (autonomous mode)
+    public synchronized List<Tag> drainReads(long nowMillis) {
+        advance(nowMillis);
+        List<Tag> reads = new ArrayList<>();
+        for (Tag tag : present.values()) {
+            if (tag.unreported > 0) {
+                reads.add(tag.copy());
+                tag.unreported = 0;
+            }
+        }
+        return reads;
+    }
+
+    // Empties the field, as "clear TagList" does on a reader
+    public synchronized void clear() {
+        present.clear();
+    }
+
+    public synchronized int size() {
+        return present.size();
+    }
+
+    // Reads made since construction, whether anyone asked for them or not
+    public synchronized long getTotalReads() {
+        return totalReads;
+    }
+
+    public void setArrivalsPerSecond(double arrivalsPerSecond) {
+        this.arrivalsPerSecond = arrivalsPerSecond;
+    }
+
+    public void setMeanDwellMs(long meanDwellMs) {
+        this.meanDwellMs = meanDwellMs;
+    }
+
+    public void setReadsPerSecond(double readsPerSecond) {
+        this.readsPerSecond = readsPerSecond;
+    }
+
+    public void setRssiRange(float rssiMin, float rssiMax) {
+        this.rssiMin = rssiMin;
+        this.rssiMax = rssiMax;
+    }
+
+    public void setAntennas(int antennas) {
+        this.antennas = Math.max(1, antennas);
+    }
+
+    private void advance(long now) {
+        if (now <= advancedTo) {
+            return;
+        }
+        while (arrivalsPerSecond > 0 && nextArrivalAt <= now) {
+            arrive(nextArrivalAt);
+            nextArrivalAt += nextArrivalGap();
+        }
+        if (arrivalsPerSecond <= 0) {
+            nextArrivalAt = now;
+        }
+        double seconds = (now - advancedTo) / 1000.0;
+        Iterator<Tag> it = present.values().iterator();
+        while (it.hasNext()) {
+            Tag tag = it.next();
+            if (tag.leavesAt <= now) {
+                it.remove();
+                continue;
+            }
+            tag.pending += readsPerSecond * seconds;
+            int reads = (int) tag.pending;
+            if (reads > 0) {
+                tag.pending -= reads;
+                tag.count += reads;
+                tag.unreported += reads;
+                // the last read was the fractional read still pending ago
+                tag.lastSeen = Math.max(tag.lastSeen, now - (long) (tag.pending * 1000 / readsPerSecond));
+                totalReads += reads;
+            }
+        }
+        advancedTo = now;
+    }
+
+    private void arrive(long now) {
+        // a 96-bit EPC that looks like the lot's permits: fixed header, then a serial
+        String epc = String.format("3030401A7801%012X", serial++);
+        float rssi = rssiMin + random.nextFloat() * (rssiMax - rssiMin);
+        long dwell = Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * meanDwellMs));
+        long leavesAt = dwell >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + dwell;
+        Tag tag = new Tag(epc, random.nextInt(antennas), rssi, now, leavesAt);
+        // a tag is read the moment it is discovered
+        tag.count = 1;
+        tag.unreported = 1;
+        totalReads++;
+        present.put(epc, tag);
+    }
+
+    private long nextArrivalGap() {
+        if (arrivalsPerSecond <= 0) {
+            return Long.MAX_VALUE / 4;
+        }
+        return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) * 1000 / arrivalsPerSecond));
+    }
+}
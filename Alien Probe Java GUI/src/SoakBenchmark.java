@@ -0,0 +1,411 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs the acquisition path end to end against a ReaderSimulator at stepped read rates and
+// reports how long a read takes from the reader to being recorded, as JSON. The path is the
+// window's: ReaderEngine and AcquisitionService poll (or stream) on their own threads, each round
+// is written to a ReadRecorder in AcquisitionService's Recorder hook on the acquisition thread,
+// then handed to the EDT and queued for a ReadsTableModel. The simulator tells the benchmark about
+// every tag it sends, so each row is timed from the oldest read it carries: the wait for the next
+// poll, the round trip, parsing and the write. Per step it reports latency percentiles,
+// throughput, reads delivered and reads that never arrived, heap growth and GC pauses; a step
+// "keeps up" while p99 latency stays under the limit and under 1% of reads go missing.
+//
+//   java SoakBenchmark [--rates 10,100,1000,10000] [--step-s 60] [--warmup-s 5] [--stream]
+//                      [--interval-ms 2000] [--limit-ms 5000] [--seed 1] [--out soak.json]
+public class SoakBenchmark {
+    // Tags are read at most this often each; higher rates put more tags in the field
+    private static final double MAX_READS_PER_TAG = 10;
+    private static final long MEAN_DWELL_MS = 30_000;
+    // the window's settings
+    private static final long POLL_MS = 2000;
+    private static final long STREAM_DRAIN_MS = 100;
+    private static final long POLL_TIMEOUT_MS = 1500;
+    private static final long PROGRESS_MS = 10_000;
+    private static final double MAX_MISSING = 0.01;
+
+    // Latencies at 1 ms resolution up to a minute; anything longer counts as a minute
+    static final class Histogram {
+        private static final int MAX_MS = 60_000;
+        private final long[] counts = new long[MAX_MS + 1];
+        private long total;
+        private long max;
+
+        void record(long ms) {
+            int bucket = (int) Math.max(0, Math.min(MAX_MS, ms));
+            counts[bucket]++;
+            total++;
+            max = Math.max(max, ms);
+        }
+
+        long percentile(double p) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int ms = 0; ms <= MAX_MS; ms++) {
+                seen += counts[ms];
+                if (seen >= rank) {
+                    return ms;
+                }
+            }
+            return MAX_MS;
+        }
+
+        void appendJson(StringBuilder json) {
+            json.append("{\"count\":").append(total)
+                    .append(",\"p50\":").append(percentile(0.50))
+                    .append(",\"p99\":").append(percentile(0.99))
+                    .append(",\"p999\":").append(percentile(0.999))
+                    .append(",\"max\":").append(max).append('}');
+        }
+    }
+
+    // GC pauses while a step is being measured, from the collectors' notifications
+    private static final class GcPauses implements NotificationListener {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalMs = new AtomicLong();
+        final AtomicLong maxMs = new AtomicLong();
+        volatile boolean measuring;
+
+        void install() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter) {
+                    ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+                }
+            }
+        }
+
+        void reset() {
+            count.set(0);
+            totalMs.set(0);
+            maxMs.set(0);
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!measuring || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long ms = info.getGcInfo().getDuration();
+            count.incrementAndGet();
+            totalMs.addAndGet(ms);
+            maxMs.accumulateAndGet(ms, Math::max);
+        }
+    }
+
+    // What the acquisition thread recorded during one step; guarded by the instance lock
+    private static final class Counters {
+        final Histogram readToRecorded = new Histogram();
+        final Histogram receivedToRecorded = new Histogram();
+        boolean measuring;
+        long rounds;
+        long rows;
+        long deliveredReads;
+        long recordFailures;
+    }
+
+    // A row the simulator sent and the benchmark has not seen recorded yet
+    private static final class Sent {
+        final long oldestRead;
+        final long reads;
+
+        Sent(long oldestRead, long reads) {
+            this.oldestRead = oldestRead;
+            this.reads = reads;
+        }
+    }
+
+    private final long stepMs;
+    private final long warmupMs;
+    private final boolean stream;
+    private final long intervalMs;
+    private final long limitMs;
+    private final long seed;
+    private final GcPauses gcPauses = new GcPauses();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    public SoakBenchmark(long stepMs, long warmupMs, boolean stream, long intervalMs, long limitMs, long seed) {
+        this.stepMs = stepMs;
+        this.warmupMs = warmupMs;
+        this.stream = stream;
+        this.intervalMs = intervalMs;
+        this.limitMs = limitMs;
+        this.seed = seed;
+        gcPauses.install();
+    }
+
+    // Runs every step in turn and returns the report
+    public String run(long[] rates) throws Exception {
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"benchmark\":\"soak\"")
+                .append(",\"started\":\"").append(Instant.now()).append('"')
+                .append(",\"java\":\"").append(System.getProperty("java.version")).append('"')
+                .append(",\"mode\":\"").append(stream ? "stream" : "poll").append('"')
+                .append(",\"interval_ms\":").append(intervalMs)
+                .append(",\"step_s\":").append(stepMs / 1000)
+                .append(",\"warmup_s\":").append(warmupMs / 1000)
+                .append(",\"limit_ms\":").append(limitMs)
+                .append(",\"max_heap_bytes\":").append(memory.getHeapMemoryUsage().getMax())
+                .append(",\"steps\":[");
+        for (int i = 0; i < rates.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            runStep(rates[i], json);
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    private void runStep(long rate, StringBuilder json) throws Exception {
+        int tags = (int) Math.max(1, Math.ceil(rate / MAX_READS_PER_TAG));
+        SimulatedTagField field = new SimulatedTagField(seed, tags, tags * 1000.0 / MEAN_DWELL_MS, MEAN_DWELL_MS);
+        field.setReadsPerSecond((double) rate / tags);
+
+        // rows sent and not yet recorded, by EPC and count, with when the oldest read in them was
+        // made and how many reads they add to the tag's count
+        Map<String, Sent> inFlight = new ConcurrentHashMap<>();
+        // the count and last read time each tag was last sent with
+        Map<String, long[]> lastSent = new ConcurrentHashMap<>();
+        long readGapMs = Math.max(1, Math.round(1000 * tags / (double) rate));
+        long[] measureFrom = {Long.MAX_VALUE};
+
+        File directory = new File(System.getProperty("java.io.tmpdir"), "soak-" + rate + "-" + System.nanoTime());
+        ReaderSimulator simulator = new ReaderSimulator(0, field);
+        simulator.setTagObserver(sent -> {
+            for (SimulatedTagField.Tag tag : sent) {
+                long[] previous = lastSent.put(tag.getEpc(), new long[]{tag.getCount(), tag.getLastSeen()});
+                if (previous != null && tag.getCount() <= previous[0]) {
+                    // repeated with no new reads
+                    continue;
+                }
+                // the first read since the tag was last sent: its discovery, or one read gap after the last one sent
+                long oldestRead = previous == null ? tag.getDiscovered() : Math.min(tag.getLastSeen(), previous[1] + readGapMs);
+                long reads = previous == null ? tag.getCount() : tag.getCount() - previous[0];
+                if (oldestRead >= measureFrom[0]) {
+                    inFlight.put(key(tag.getEpc(), tag.getCount()), new Sent(oldestRead, reads));
+                }
+            }
+        });
+        ReaderEngine engine = new ReaderEngine();
+        engine.addReader(new AlienReader("soak", "127.0.0.1", simulator.getPort(),
+                ReaderSimulator.DEFAULT_USERNAME, ReaderSimulator.DEFAULT_PASSWORD));
+        ReadRecorder recorder = new ReadRecorder(directory);
+        ReadsTableModel[] table = new ReadsTableModel[1];
+        SwingUtilities.invokeAndWait(() -> {
+            table[0] = new ReadsTableModel();
+            table[0].start();
+        });
+        Counters counters = new Counters();
+
+        AcquisitionService acquisition = new AcquisitionService(engine, events -> {
+            synchronized (counters) {
+                counters.rounds++;
+                for (TagEvent event : events) {
+                    try {
+                        recorder.record(event);
+                    } catch (IOException e) {
+                        counters.recordFailures++;
+                        continue;
+                    }
+                    long recordedAt = System.currentTimeMillis();
+                    Sent sent = inFlight.remove(key(event.getEPC(), event.getRead().getCount()));
+                    if (!counters.measuring) {
+                        continue;
+                    }
+                    counters.rows++;
+                    if (sent != null) {
+                        counters.deliveredReads += sent.reads;
+                        counters.readToRecorded.record(recordedAt - sent.oldestRead);
+                    }
+                    counters.receivedToRecorded.record(recordedAt - event.getReceivedAt());
+                }
+            }
+        }, (events, latency) -> table[0].addAll(events));
+
+        System.out.println("Soak: " + rate + " reads/s from " + tags + " tags for " + (stepMs / 1000) + " s");
+        acquisition.start(stream, intervalMs, POLL_TIMEOUT_MS);
+        Thread.sleep(warmupMs);
+
+        System.gc();
+        long heapStart = memory.getHeapMemoryUsage().getUsed();
+        long heapMax = heapStart;
+        gcPauses.reset();
+        gcPauses.measuring = true;
+        synchronized (counters) {
+            counters.measuring = true;
+        }
+        long start = System.currentTimeMillis();
+        measureFrom[0] = start;
+        long offeredStart = field.getTotalReads();
+        long nextProgress = start + PROGRESS_MS;
+        long end = start + stepMs;
+        for (long now = start; now < end; now = System.currentTimeMillis()) {
+            Thread.sleep(Math.min(1000, end - now));
+            heapMax = Math.max(heapMax, memory.getHeapMemoryUsage().getUsed());
+            if (System.currentTimeMillis() >= nextProgress) {
+                nextProgress += PROGRESS_MS;
+                synchronized (counters) {
+                    System.out.println("Soak: " + rate + " reads/s, "
+                            + counters.rows + " rows, p99 " + counters.readToRecorded.percentile(0.99) + " ms");
+                }
+            }
+        }
+        long elapsedMs = System.currentTimeMillis() - start;
+        long offered = field.getTotalReads() - offeredStart;
+        // reads made from here on are not counted as missing
+        measureFrom[0] = Long.MAX_VALUE;
+        long sentBy = System.currentTimeMillis();
+        // let what is already sent come through
+        Thread.sleep(intervalMs + POLL_TIMEOUT_MS);
+        synchronized (counters) {
+            counters.measuring = false;
+        }
+        gcPauses.measuring = false;
+
+        acquisition.stop();
+        engine.shutdown();
+        simulator.close();
+        recorder.close();
+        ReaderSession.closeAll();
+        SwingUtilities.invokeAndWait(() -> table[0].stop());
+        long missing = 0;
+        for (Sent sent : inFlight.values()) {
+            if (sent.oldestRead < sentBy) {
+                missing += sent.reads;
+            }
+        }
+        deleteDirectory(directory);
+        System.gc();
+        long heapEnd = memory.getHeapMemoryUsage().getUsed();
+
+        // a round may still be finishing on the acquisition thread
+        long p99;
+        boolean keepingUp;
+        synchronized (counters) {
+            long delivered = counters.deliveredReads;
+            p99 = counters.readToRecorded.percentile(0.99);
+            keepingUp = delivered > 0 && p99 <= limitMs && missing <= MAX_MISSING * (delivered + missing);
+            double seconds = elapsedMs / 1000.0;
+            json.append("{\"target_reads_per_s\":").append(rate)
+                    .append(",\"tags\":").append(tags)
+                    .append(",\"seconds\":").append(round(seconds))
+                    .append(",\"offered_reads\":").append(offered)
+                    .append(",\"offered_reads_per_s\":").append(round(offered / seconds))
+                    .append(",\"rounds\":").append(counters.rounds)
+                    .append(",\"rows\":").append(counters.rows)
+                    .append(",\"rows_per_s\":").append(round(counters.rows / seconds))
+                    .append(",\"delivered_reads\":").append(delivered)
+                    .append(",\"missing_reads\":").append(missing)
+                    .append(",\"record_failures\":").append(counters.recordFailures)
+                    .append(",\"table_dropped\":").append(table[0].getDroppedCount())
+                    .append(",\"latency_ms\":{\"read_to_recorded\":");
+            counters.readToRecorded.appendJson(json);
+            json.append(",\"received_to_recorded\":");
+            counters.receivedToRecorded.appendJson(json);
+        }
+        json.append("},\"heap\":{\"start_bytes\":").append(heapStart)
+                .append(",\"end_bytes\":").append(heapEnd)
+                .append(",\"growth_bytes\":").append(heapEnd - heapStart)
+                .append(",\"max_used_bytes\":").append(heapMax)
+                .append("},\"gc\":{\"pauses\":").append(gcPauses.count.get())
+                .append(",\"total_pause_ms\":").append(gcPauses.totalMs.get())
+                .append(",\"max_pause_ms\":").append(gcPauses.maxMs.get())
+                .append("},\"keeping_up\":").append(keepingUp).append('}');
+        System.out.println("Soak: " + rate + " reads/s done, p99 " + p99 + " ms, "
+                + missing + " missing, " + (keepingUp ? "keeping up" : "falling behind"));
+    }
+
+    private static String key(String epc, int count) {
+        return epc + '/' + count;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public static void main(String[] args) throws Exception {
+        long[] rates = {10, 100, 1_000, 10_000};
+        long stepS = 60;
+        long warmupS = 5;
+        boolean stream = false;
+        long intervalMs = -1;
+        long limitMs = 5000;
+        long seed = 1;
+        String out = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--stream")) {
+                stream = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--rates":
+                    String[] parts = value.split(",");
+                    List<Long> parsed = new ArrayList<>();
+                    for (String part : parts) {
+                        parsed.add(Long.parseLong(part.trim()));
+                    }
+                    rates = parsed.stream().mapToLong(Long::longValue).toArray();
+                    break;
+                case "--step-s": stepS = Long.parseLong(value); break;
+                case "--warmup-s": warmupS = Long.parseLong(value); break;
+                case "--interval-ms": intervalMs = Long.parseLong(value); break;
+                case "--limit-ms": limitMs = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--out": out = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+            }
+        }
+        if (intervalMs < 0) {
+            intervalMs = stream ? STREAM_DRAIN_MS : POLL_MS;
+        }
+        String report = new SoakBenchmark(stepS * 1000, warmupS * 1000, stream, intervalMs, limitMs, seed).run(rates);
+        if (out != null) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8)) {
+                writer.write(report);
+                writer.write('\n');
+            }
+            System.out.println("Soak report written to " + out);
+        } else {
+            System.out.println(report);
+        }
+        System.exit(0);
+    }
+}
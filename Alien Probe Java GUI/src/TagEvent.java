@@ -0,0 +1,38 @@
+// A read from one of several readers, as merged by ReaderEngine
+public class TagEvent {
+    private final String readerId;
+    private final TagRead read;
+    private final long receivedAt;
+
+    public TagEvent(String readerId, TagRead read, long receivedAt) {
+        this.readerId = readerId;
+        this.read = read;
+        this.receivedAt = receivedAt;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public TagRead getRead() {
+        return read;
+    }
+
+    public int getAntenna() {
+        return read.getAntenna();
+    }
+
+    public String getEPC() {
+        return read.getEPC();
+    }
+
+    // Host clock when the read reached us, epoch millis
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
+    @Override
+    public String toString() {
+        return read.getEPC() + "  (" + readerId + ", ant " + read.getAntenna() + ")";
+    }
+}
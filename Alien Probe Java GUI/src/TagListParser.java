@@ -0,0 +1,494 @@
+import java.util.TimeZone;
+
+// Streaming parser for the reader's reply to "t" (get TagList).
+// Walks the reply in place instead of splitting it into lines, and emits one TagRead per tag.
+// Handles the reader's TagListFormat variants:
+//   Text:   Tag:E200 3411 B802 0115 1612 7239, Disc:2024/04/16 11:42:43, Last:2024/04/16 11:42:43, Count:4, Ant:0, Proto:2
+//   Terse:  E200 3411 B802 0115 1612 7239,4,0   (EPC, count, antenna; a bare EPC per line also works)
+//   Custom: whatever TagListCustomFormat says, e.g. "%k,%a,%r,${RSSI}"
+// One parser keeps its scratch state in fields, so use one instance per thread.
+public class TagListParser {
+    public interface Listener {
+        void onTag(TagRead read);
+    }
+
+    // Fields a custom format can contain
+    private static final int FIELD_SKIP = 0;
+    private static final int FIELD_EPC = 1;
+    private static final int FIELD_ANTENNA = 2;
+    private static final int FIELD_COUNT = 3;
+    private static final int FIELD_RSSI = 4;
+    private static final int FIELD_MSEC1 = 5;
+    private static final int FIELD_MSEC2 = 6;
+    private static final int FIELD_DATE1 = 7;
+    private static final int FIELD_TIME1 = 8;
+    private static final int FIELD_DATE2 = 9;
+    private static final int FIELD_TIME2 = 10;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    // null for Text/Terse replies
+    private final int[] fields;
+    // literals[0] comes before the first field, literals[i + 1] after field i
+    private final String[] literals;
+    private final TimeZone timeZone;
+
+    // Scratch state for the line being parsed
+    private int pos;
+    private long epcHi;
+    private long epcLo;
+    private int epcDigits;
+    private int antenna;
+    private int count;
+    private float rssi;
+    private long firstSeen;
+    private long lastSeen;
+    private long date1;
+    private long time1;
+    private long date2;
+    private long time2;
+
+    private TagListParser(int[] fields, String[] literals, TimeZone timeZone) {
+        this.fields = fields;
+        this.literals = literals;
+        this.timeZone = timeZone;
+    }
+
+    // Text and Terse lines are told apart per line, so one parser handles both
+    public static TagListParser text() {
+        return text(TimeZone.getDefault());
+    }
+
+    // timeZone is the reader's clock zone, used for the Disc/Last date-time fields
+    public static TagListParser text(TimeZone timeZone) {
+        return new TagListParser(null, null, timeZone);
+    }
+
+    public static TagListParser terse() {
+        return text();
+    }
+
+    public static TagListParser custom(String customFormat) {
+        return custom(customFormat, TimeZone.getDefault());
+    }
+
+    public static TagListParser custom(String customFormat, TimeZone timeZone) {
+        int[] fields = new int[customFormat.length()];
+        String[] literals = new String[customFormat.length() + 1];
+        int fieldCount = 0;
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < customFormat.length()) {
+            char c = customFormat.charAt(i);
+            int field = -1;
+            int next = i + 1;
+            if (c == '%' && i + 1 < customFormat.length()) {
+                field = percentField(customFormat.charAt(i + 1));
+                next = i + 2;
+            } else if (c == '$' && customFormat.startsWith("${", i) && customFormat.indexOf('}', i) > 0) {
+                int close = customFormat.indexOf('}', i);
+                field = namedField(customFormat.substring(i + 2, close));
+                next = close + 1;
+            }
+            if (field < 0) {
+                literal.append(c);
+            } else {
+                literals[fieldCount] = literal.toString();
+                literal.setLength(0);
+                fields[fieldCount++] = field;
+            }
+            i = next;
+        }
+        literals[fieldCount] = literal.toString();
+
+        int[] trimmedFields = new int[fieldCount];
+        System.arraycopy(fields, 0, trimmedFields, 0, fieldCount);
+        String[] trimmedLiterals = new String[fieldCount + 1];
+        System.arraycopy(literals, 0, trimmedLiterals, 0, fieldCount + 1);
+        return new TagListParser(trimmedFields, trimmedLiterals, timeZone);
+    }
+
+    // Picks the parser matching the reader's TagListFormat / TagListCustomFormat settings
+    public static TagListParser forFormat(String tagListFormat, String customFormat) {
+        if (tagListFormat != null && tagListFormat.trim().equalsIgnoreCase("custom") && customFormat != null) {
+            return custom(customFormat);
+        }
+        return text();
+    }
+
+    public int parse(CharSequence reply, Listener listener) {
+        return parse(reply, 0, reply.length(), listener);
+    }
+
+    // Parses reply[start, end) and returns the number of tags emitted
+    public int parse(CharSequence reply, int start, int end, Listener listener) {
+        int tags = 0;
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && !isLineBreak(reply.charAt(lineEnd))) {
+                lineEnd++;
+            }
+            if (lineEnd > lineStart && parseLine(reply, lineStart, lineEnd)) {
+                listener.onTag(new TagRead(epcHi, epcLo, epcDigits, antenna, rssi, count, firstSeen, lastSeen));
+                tags++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return tags;
+    }
+
+    private boolean parseLine(CharSequence s, int start, int end) {
+        epcHi = 0;
+        epcLo = 0;
+        epcDigits = 0;
+        antenna = TagRead.NO_ANTENNA;
+        count = 1;
+        rssi = Float.NaN;
+        firstSeen = TagRead.NO_TIME;
+        lastSeen = TagRead.NO_TIME;
+        date1 = -1;
+        time1 = 0;
+        date2 = -1;
+        time2 = 0;
+
+        boolean ok;
+        if (fields != null) {
+            ok = parseCustomLine(s, start, end);
+        } else if (startsWith(s, start, end, "Tag:")) {
+            ok = parseTextLine(s, start + 4, end);
+        } else {
+            ok = parseTerseLine(s, start, end);
+        }
+        if (!ok || epcDigits == 0) {
+            return false;
+        }
+        if (date1 >= 0) {
+            firstSeen = toEpochMillis(date1 * MILLIS_PER_DAY + time1);
+        }
+        if (date2 >= 0) {
+            lastSeen = toEpochMillis(date2 * MILLIS_PER_DAY + time2);
+        }
+        return true;
+    }
+
+    // Tag:<epc>, Disc:<date> <time>, Last:<date> <time>, Count:<n>, Ant:<n>[, Proto:<n>][, RSSI:<x>]
+    private boolean parseTextLine(CharSequence s, int start, int end) {
+        int valueEnd = indexOf(s, ',', start, end);
+        if (!parseEpc(s, start, valueEnd)) {
+            return false;
+        }
+        pos = valueEnd + 1;
+        while (pos < end) {
+            int keyStart = skipSpaces(s, pos, end);
+            int colon = indexOf(s, ':', keyStart, end);
+            valueEnd = indexOf(s, ',', colon, end);
+            int valueStart = skipSpaces(s, colon + 1, valueEnd);
+            if (startsWith(s, keyStart, colon, "Disc")) {
+                parseDateTime(s, valueStart, valueEnd, true);
+            } else if (startsWith(s, keyStart, colon, "Last")) {
+                parseDateTime(s, valueStart, valueEnd, false);
+            } else if (startsWith(s, keyStart, colon, "Count")) {
+                count = (int) parseLong(s, valueStart, valueEnd);
+            } else if (startsWith(s, keyStart, colon, "Ant")) {
+                antenna = (int) parseLong(s, valueStart, valueEnd);
+            } else if (startsWith(s, keyStart, colon, "RSSI") || startsWith(s, keyStart, colon, "Rssi")) {
+                rssi = parseFloat(s, valueStart, valueEnd);
+            }
+            pos = valueEnd + 1;
+        }
+        return true;
+    }
+
+    // <epc>[,<count>[,<antenna>]]
+    private boolean parseTerseLine(CharSequence s, int start, int end) {
+        int valueEnd = indexOf(s, ',', start, end);
+        if (!parseEpc(s, start, valueEnd)) {
+            return false;
+        }
+        if (valueEnd < end) {
+            int countEnd = indexOf(s, ',', valueEnd + 1, end);
+            count = (int) parseLong(s, valueEnd + 1, countEnd);
+            if (countEnd < end) {
+                antenna = (int) parseLong(s, countEnd + 1, indexOf(s, ',', countEnd + 1, end));
+            }
+        }
+        return true;
+    }
+
+    private boolean parseCustomLine(CharSequence s, int start, int end) {
+        pos = start;
+        if (!skipLiteral(s, literals[0], end)) {
+            return false;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            String after = literals[i + 1];
+            // a field runs up to the first character of the literal that follows it
+            int valueEnd = after.isEmpty() ? end : indexOf(s, after.charAt(0), pos, end);
+            int valueStart = pos;
+            switch (fields[i]) {
+                case FIELD_EPC:
+                    if (!parseEpc(s, valueStart, valueEnd)) {
+                        return false;
+                    }
+                    break;
+                case FIELD_ANTENNA:
+                    antenna = (int) parseLong(s, valueStart, valueEnd);
+                    break;
+                case FIELD_COUNT:
+                    count = (int) parseLong(s, valueStart, valueEnd);
+                    break;
+                case FIELD_RSSI:
+                    rssi = parseFloat(s, valueStart, valueEnd);
+                    break;
+                case FIELD_MSEC1:
+                    firstSeen = parseLong(s, valueStart, valueEnd);
+                    break;
+                case FIELD_MSEC2:
+                    lastSeen = parseLong(s, valueStart, valueEnd);
+                    break;
+                case FIELD_DATE1:
+                    date1 = parseDate(s, valueStart, valueEnd);
+                    break;
+                case FIELD_TIME1:
+                    time1 = parseTime(s, valueStart, valueEnd);
+                    break;
+                case FIELD_DATE2:
+                    date2 = parseDate(s, valueStart, valueEnd);
+                    break;
+                case FIELD_TIME2:
+                    time2 = parseTime(s, valueStart, valueEnd);
+                    break;
+                default:
+                    break;
+            }
+            pos = valueEnd;
+            if (pos < end && !skipLiteral(s, after, end)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Hex digits with optional spaces between groups; anything else means this is not a tag line
+    private boolean parseEpc(CharSequence s, int start, int end) {
+        long hi = 0;
+        long lo = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == ' ') {
+                continue;
+            }
+            int nibble = hexValue(c);
+            if (nibble < 0 || digits == TagRead.MAX_EPC_DIGITS) {
+                return false;
+            }
+            hi = (hi << 4) | (lo >>> 60);
+            lo = (lo << 4) | nibble;
+            digits++;
+        }
+        epcHi = hi;
+        epcLo = lo;
+        epcDigits = digits;
+        return digits > 0;
+    }
+
+    // <yyyy/MM/dd> <HH:mm:ss[.SSS]>
+    private void parseDateTime(CharSequence s, int start, int end, boolean discovery) {
+        int space = indexOf(s, ' ', start, end);
+        long date = parseDate(s, start, space);
+        long time = space < end ? parseTime(s, space + 1, end) : 0;
+        if (discovery) {
+            date1 = date;
+            time1 = time;
+        } else {
+            date2 = date;
+            time2 = time;
+        }
+    }
+
+    // Days since 1970-01-01 for yyyy/MM/dd, or -1 if malformed
+    private static long parseDate(CharSequence s, int start, int end) {
+        if (end - start < 10) {
+            return -1;
+        }
+        long year = parseLong(s, start, start + 4);
+        long month = parseLong(s, start + 5, start + 7);
+        long day = parseLong(s, start + 8, start + 10);
+        // days-from-civil, proleptic Gregorian
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Millis into the day for HH:mm:ss[.SSS]
+    private static long parseTime(CharSequence s, int start, int end) {
+        if (end - start < 8) {
+            return 0;
+        }
+        long millis = parseLong(s, start, start + 2) * 3_600_000L
+                + parseLong(s, start + 3, start + 5) * 60_000L
+                + parseLong(s, start + 6, start + 8) * 1_000L;
+        if (end - start >= 12 && s.charAt(start + 8) == '.') {
+            millis += parseLong(s, start + 9, start + 12);
+        }
+        return millis;
+    }
+
+    // Reader timestamps are wall-clock time in the reader's zone
+    private long toEpochMillis(long localMillis) {
+        long utc = localMillis - timeZone.getOffset(localMillis);
+        return localMillis - timeZone.getOffset(utc);
+    }
+
+    private static long parseLong(CharSequence s, int start, int end) {
+        start = skipSpaces(s, start, end);
+        boolean negative = start < end && s.charAt(start) == '-';
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static float parseFloat(CharSequence s, int start, int end) {
+        start = skipSpaces(s, start, end);
+        boolean negative = start < end && s.charAt(start) == '-';
+        long mantissa = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean any = false;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                any = true;
+                if (fraction) {
+                    scale++;
+                }
+            } else {
+                break;
+            }
+        }
+        if (!any) {
+            return Float.NaN;
+        }
+        double value = mantissa;
+        while (scale-- > 0) {
+            value /= 10;
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    private boolean skipLiteral(CharSequence s, String literal, int end) {
+        if (!startsWith(s, pos, end, literal)) {
+            return false;
+        }
+        pos += literal.length();
+        return true;
+    }
+
+    private static int percentField(char c) {
+        switch (c) {
+            case 'i':
+            case 'k':
+                return FIELD_EPC;
+            case 'a':
+            case 'A':
+                return FIELD_ANTENNA;
+            case 'r':
+                return FIELD_COUNT;
+            case 'm':
+                return FIELD_RSSI;
+            case 'd':
+                return FIELD_DATE1;
+            case 't':
+                return FIELD_TIME1;
+            case 'D':
+                return FIELD_DATE2;
+            case 'T':
+                return FIELD_TIME2;
+            default:
+                return FIELD_SKIP;
+        }
+    }
+
+    private static int namedField(String name) {
+        switch (name) {
+            case "TAGID":
+            case "TAGIDB":
+            case "TAGIDW":
+                return FIELD_EPC;
+            case "TX":
+            case "RX":
+                return FIELD_ANTENNA;
+            case "COUNT":
+                return FIELD_COUNT;
+            case "RSSI":
+                return FIELD_RSSI;
+            case "MSEC1":
+                return FIELD_MSEC1;
+            case "MSEC2":
+                return FIELD_MSEC2;
+            case "DATE1":
+                return FIELD_DATE1;
+            case "TIME1":
+                return FIELD_TIME1;
+            case "DATE2":
+                return FIELD_DATE2;
+            case "TIME2":
+                return FIELD_TIME2;
+            default:
+                return FIELD_SKIP;
+        }
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        return -1;
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r' || c == '\0';
+    }
+
+    private static int indexOf(CharSequence s, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int skipSpaces(CharSequence s, int start, int end) {
+        while (start < end && s.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static boolean startsWith(CharSequence s, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
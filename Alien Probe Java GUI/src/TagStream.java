@@ -0,0 +1,122 @@
+import com.alien.enterpriseRFID.notify.Message;
+import com.alien.enterpriseRFID.notify.MessageListener;
+import com.alien.enterpriseRFID.notify.MessageListenerService;
+import com.alien.enterpriseRFID.reader.AlienReaderException;
+import com.alien.enterpriseRFID.tags.Tag;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Push-based ingest: puts the reader in autonomous mode and has it stream every tag report to us
+// over TCP (TagStreamMode), instead of polling "t" on a timer and losing reads in between.
+// Reports are decoded as they arrive into a bounded queue that the scan loop drains.
+public class TagStream implements MessageListener {
+    public static final int DEFAULT_PORT = 4000;
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final ReaderSession session;
+    private final int listenerPort;
+    private final BlockingQueue<TagRead> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private MessageListenerService service;
+    private volatile long droppedCount = 0;
+
+    public TagStream(ReaderSession session, int listenerPort) {
+        this.session = session;
+        this.listenerPort = listenerPort;
+    }
+
+    // Starts the local listener, then points the reader's tag stream at it and turns on AutoMode
+    public synchronized void start() throws IOException, AlienReaderException {
+        if (isRunning()) {
+            return;
+        }
+        service = new MessageListenerService(listenerPort);
+        service.setMessageListener(this);
+        service.startService();
+
+        String localAddress = localAddressFacing(session.getReaderIP());
+        try {
+            session.doCommand("set TagStreamAddress = " + localAddress + ":" + listenerPort);
+            session.doCommand("set TagStreamFormat = Text");
+            session.doCommand("set TagStreamMode = On");
+            session.doCommand("set AutoMode = On");
+            System.out.println("Tag stream started on " + localAddress + ":" + listenerPort);
+        } catch (AlienReaderException e) {
+            service.stopService();
+            service = null;
+            throw e;
+        }
+    }
+
+    public synchronized void stop() {
+        if (service == null) {
+            return;
+        }
+        try {
+            session.doCommand("set AutoMode = Off");
+            session.doCommand("set TagStreamMode = Off");
+        } catch (AlienReaderException e) {
+            // The reader may already be gone; the listener still has to be torn down
+            System.out.println(e);
+        }
+        service.stopService();
+        service = null;
+        System.out.println("Tag stream stopped.");
+    }
+
+    public synchronized boolean isRunning() {
+        return service != null && service.isRunning();
+    }
+
+    // Waits up to timeout for the first tag, then takes everything else already queued
+    public int drainTo(Collection<? super TagRead> out, long timeout, TimeUnit unit) throws InterruptedException {
+        TagRead first = queue.poll(timeout, unit);
+        if (first == null) {
+            return 0;
+        }
+        out.add(first);
+        return 1 + queue.drainTo(out);
+    }
+
+    // Tags thrown away because nobody drained the queue fast enough
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    public void messageReceived(Message message) {
+        Tag[] tags = message.getTagList();
+        if (tags == null) {
+            return;
+        }
+        for (Tag tag : tags) {
+            TagRead read = toTagRead(tag);
+            // Keep the newest reads when the consumer falls behind
+            while (!queue.offer(read)) {
+                if (queue.poll() != null) {
+                    droppedCount++;
+                }
+            }
+        }
+    }
+
+    private static TagRead toTagRead(Tag tag) {
+        TagRead epcOnly = TagRead.ofEpc(tag.getTagID());
+        float rssi = tag.getRSSI() == 0 ? Float.NaN : (float) tag.getRSSI();
+        return new TagRead(epcOnly.getEpcHi(), epcOnly.getEpcLo(), epcOnly.getEpcDigits(), tag.getAntenna(),
+                rssi, tag.getRenewCount(), tag.getDiscoverTime(), tag.getRenewTime());
+    }
+
+    // The address of the interface the reader can reach us on (no packets are sent)
+    private static String localAddressFacing(String readerIP) throws IOException {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.connect(InetAddress.getByName(readerIP), 9);
+            return socket.getLocalAddress().getHostAddress();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.alienprobe.database
+
+import android.content.Context
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+import org.junit.Assert.*
+
+/**
+ * Opening a version 1 database, as left by the original app, with the current helper.
+ */
+@RunWith(AndroidJUnit4::class)
+class DataBaseHelperMigrationTest {
+    private val name = "migration-test.db"
+    private lateinit var context: Context
+
+    @Before
+    fun setUp() {
+        context = InstrumentationRegistry.getInstrumentation().targetContext
+        context.deleteDatabase(name)
+    }
+
+    @After
+    fun tearDown() {
+        context.deleteDatabase(name)
+    }
+
+    // The version 1 schema and rows as its addOne wrote them: the reader's whole line in EPC_STRING,
+    // longitude in LATITUDE and latitude in LONGITUDE
+    private fun createV1(vararg rows: String) {
+        val db = context.openOrCreateDatabase(name, Context.MODE_PRIVATE, null)
+        db.execSQL("CREATE TABLE RFIDTAG_TABLE (ID INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "EPC_STRING TEXT NOT NULL UNIQUE, LONGITUDE DOUBLE NOT NULL, LATITUDE DOUBLE NOT NULL, " +
+                "TIME TEXT NOT NULL, VEHICLE TEXT NOT NULL)")
+        rows.forEachIndexed { i, line ->
+            db.execSQL("INSERT INTO RFIDTAG_TABLE (EPC_STRING, LONGITUDE, LATITUDE, TIME, VEHICLE) VALUES (?, ?, ?, ?, ?)",
+                arrayOf(line, 36.98 + i, -86.45, "2024-04-16 11:42:4$i", "Vehicle $i"))
+        }
+        db.version = 1
+        db.close()
+    }
+
+    @Test
+    fun readerLines_becomeSightingsOfTheirEpc() {
+        createV1(
+            "Tag:3030 401A 7801 5CF6 C001 5EFD, Disc:2024/04/16 11:42:43, Last:2024/04/16 11:42:44, Count:12, Ant:0, Proto:2",
+            "Tag:3034 02E1 C821 200B A43B 8B47, Disc:2024/04/16 11:42:44, Last:2024/04/16 11:42:44, Count:3, Ant:1, Proto:2",
+            "0C18C81C259C")
+
+        val helper = DataBaseHelper(context, name)
+        val tags = helper.allTags
+        helper.close()
+
+        assertEquals(listOf("3030401A78015CF6C0015EFD", "303402E1C821200BA43B8B47", "0C18C81C259C"), tags.map { it.epc })
+        assertEquals(36.98, tags[0].latitude, 1e-6)
+        assertEquals(-86.45, tags[0].longitude, 1e-6)
+        assertEquals("Vehicle 1", tags[1].vehicle)
+    }
+
+    @Test
+    fun rowsWithoutAnEpc_areSkipped() {
+        createV1(
+            "(No Tags)",
+            "Tag:3030 401A 7801 5CF6 C001 6A16, Disc:2024/04/16 11:42:42, Last:2024/04/16 11:42:44, Count:7, Ant:0, Proto:2",
+            "RFIDTag{EPC = unknown")
+
+        val helper = DataBaseHelper(context, name)
+        val tags = helper.allTags
+        val db = helper.readableDatabase
+        val oldTableLeft = db.rawQuery("SELECT name FROM sqlite_master WHERE name = 'RFIDTAG_TABLE'", null).use { it.count }
+        helper.close()
+
+        assertEquals(listOf("3030401A78015CF6C0016A16"), tags.map { it.epc })
+        assertEquals(0, oldTableLeft)
+    }
+}
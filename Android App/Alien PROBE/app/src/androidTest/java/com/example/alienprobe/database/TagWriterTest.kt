@@ -0,0 +1,51 @@
+package com.example.alienprobe.database
+
+import android.content.Context
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import org.junit.Assert.*
+
+/**
+ * Batched writes through TagWriter into a database of the test's own.
+ */
+@RunWith(AndroidJUnit4::class)
+class TagWriterTest {
+    private val name = "tag-writer-test.db"
+    private lateinit var context: Context
+    private lateinit var helper: DataBaseHelper
+
+    @Before
+    fun setUp() {
+        context = InstrumentationRegistry.getInstrumentation().targetContext
+        context.deleteDatabase(name)
+        helper = DataBaseHelper(context, name)
+    }
+
+    @After
+    fun tearDown() {
+        helper.close()
+        context.deleteDatabase(name)
+    }
+
+    @Test
+    fun malformedEpc_dropsOnlyThatRow() {
+        val writer = TagWriter(helper)
+        val written = CountDownLatch(1)
+        writer.setOnBatchWritten { written.countDown() }
+        // queued well inside the linger time, so all three are one batch
+        listOf("3030401A78015CF6C0015EFD", "Tag:not an EPC", "303402E1C821200BA43B8B47").forEachIndexed { i, epc ->
+            writer.enqueue(TagModel(-1, epc, -86.45, 36.98, 1_000L + i, null))
+        }
+
+        assertTrue(written.await(5, TimeUnit.SECONDS))
+        assertEquals(2, writer.insertedCount)
+        assertEquals(listOf("3030401A78015CF6C0015EFD", "303402E1C821200BA43B8B47"), helper.allTags.map { it.epc })
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.alienprobe.api;
+
+import androidx.annotation.Nullable;
+
+// Where the network classes report what went wrong: android.util.Log in the app (see ANDROID),
+// anything else on the JVM, where Log is not available
+public interface ApiLog {
+    ApiLog ANDROID = (tag, message, error) -> android.util.Log.w(tag, message, error);
+
+    void warn(String tag, String message, @Nullable Throwable error);
+}
@@ -3,13 +3,30 @@ package com.example.alienprobe.api;
 import com.example.alienprobe.java.Vehicle;
 
 import java.util.List;
+import java.util.Map;
 
+import okhttp3.RequestBody;
 import retrofit2.Call;
+import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
+import retrofit2.http.POST;
 import retrofit2.http.Query;
 
 public interface ApiService {
     //Get data from DB for vehicle permit information - Vehicle info & permitID
     @GET("Lookup/GetVehicleListByPermit")
     Call<List<Vehicle>> getVehicleListByPermit(@Query("PermitNumber") int permitId);
-}
+
+    //Same lookup for many permits in one round trip; permits with no vehicles may be left out.
+    //Servers without it answer 404, and PermitBatcher falls back to getVehicleListByPermit.
+    @POST("Lookup/GetVehicleListByPermits")
+    Call<Map<Integer, List<Vehicle>>> getVehicleListByPermits(@Body List<Integer> permitIds);
+
+    //Stored sightings as gzip-compressed JSON, built by SightingUploader.
+    //A retried batch carries the Idempotency-Key of its first attempt; 409 means it was already stored.
+    @Headers("Content-Encoding: gzip")
+    @POST("Sightings/Upload")
+    Call<Void> uploadSightings(@Header("Idempotency-Key") String idempotencyKey, @Body RequestBody batch);
+}
\ No newline at end of file
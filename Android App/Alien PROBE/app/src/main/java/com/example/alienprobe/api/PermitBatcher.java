@@ -0,0 +1,142 @@
+package com.example.alienprobe.api;
+
+import com.example.alienprobe.java.Vehicle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit2.Response;
+
+// Gathers permit lookups over a short window and sends them as one bulk request,
+// so a poll that turns up 200 new tags costs one round trip instead of 200.
+// If the server has no bulk endpoint, the batch goes out as parallel single lookups instead
+// (bounded by the executor), and bulk is not tried again.
+public class PermitBatcher {
+    // long enough to catch every tag of one poll, short enough not to be noticed
+    public static final long WINDOW_MS = 30;
+    public static final int MAX_BATCH = 100;
+    private static final String TAG = "PermitBatcher";
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "permit-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ApiService api;
+    private final Executor executor;
+    private final ApiLog log;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    // guarded by this
+    private Map<Integer, CompletableFuture<List<Vehicle>>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private volatile boolean bulkSupported = true;
+
+    public PermitBatcher(ApiService api, Executor executor, ApiLog log) {
+        this.api = api;
+        this.executor = executor;
+        this.log = log;
+    }
+
+    // Vehicles for a permit, an empty list if it has none; completes on an executor thread
+    public synchronized CompletableFuture<List<Vehicle>> lookup(int permitId) {
+        CompletableFuture<List<Vehicle>> future = pending.get(permitId);
+        if (future != null) {
+            return future;
+        }
+        future = new CompletableFuture<>();
+        pending.put(permitId, future);
+        if (pending.size() >= MAX_BATCH) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = timer.schedule(this::flush, WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    public boolean isBulkSupported() {
+        return bulkSupported;
+    }
+
+    // HTTP requests made so far, bulk and single
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    private synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        final Map<Integer, CompletableFuture<List<Vehicle>>> batch = pending;
+        pending = new LinkedHashMap<>();
+        executor.execute(() -> send(batch));
+    }
+
+    private void send(Map<Integer, CompletableFuture<List<Vehicle>>> batch) {
+        if (batch.size() > 1 && bulkSupported) {
+            Response<Map<Integer, List<Vehicle>>> response;
+            try {
+                requestCount.incrementAndGet();
+                response = api.getVehicleListByPermits(new ArrayList<>(batch.keySet())).execute();
+            } catch (IOException e) {
+                failAll(batch, e);
+                return;
+            }
+            if (response.isSuccessful()) {
+                Map<Integer, List<Vehicle>> found = response.body();
+                for (Map.Entry<Integer, CompletableFuture<List<Vehicle>>> entry : batch.entrySet()) {
+                    List<Vehicle> vehicles = found != null ? found.get(entry.getKey()) : null;
+                    entry.getValue().complete(vehicles != null ? vehicles : Collections.<Vehicle>emptyList());
+                }
+                return;
+            }
+            int code = response.code();
+            if (code != 404 && code != 405 && code != 501) {
+                failAll(batch, new IOException("Bulk vehicle lookup failed: HTTP " + code));
+                return;
+            }
+            log.warn(TAG, "No bulk vehicle lookup on this server (HTTP " + code + "), using single lookups", null);
+            bulkSupported = false;
+        }
+        for (Map.Entry<Integer, CompletableFuture<List<Vehicle>>> entry : batch.entrySet()) {
+            executor.execute(() -> sendSingle(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private void sendSingle(int permitId, CompletableFuture<List<Vehicle>> future) {
+        try {
+            requestCount.incrementAndGet();
+            Response<List<Vehicle>> response = api.getVehicleListByPermit(permitId).execute();
+            if (response.isSuccessful() || response.code() == 404) {
+                List<Vehicle> vehicles = response.body();
+                future.complete(vehicles != null ? vehicles : Collections.<Vehicle>emptyList());
+            } else {
+                future.completeExceptionally(new IOException(
+                        "Vehicle lookup for permit " + permitId + " failed: HTTP " + response.code()));
+            }
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static void failAll(Map<Integer, CompletableFuture<List<Vehicle>>> batch, Exception e) {
+        for (CompletableFuture<List<Vehicle>> future : batch.values()) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -1,18 +1,55 @@
 package com.example.alienprobe.api;
 
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class RetrofitClient {
     private static final String BASE_URL = "(Change this to the URL API you are using)";
 
-    private static final Retrofit retrofit = new Retrofit.Builder()
-            .baseUrl(BASE_URL)
-            .addConverterFactory(GsonConverterFactory.create())
-            .build();
+    // Lookups run on at most 8 threads (see VehicleResolver); keep a warm connection for each
+    // so a burst of single lookups does not pay a TCP and TLS handshake per permit
+    private static final int MAX_CONNECTIONS = 8;
+
+    // Built on first use: Retrofit rejects the placeholder URL, and that must not crash class loading
+    private static ApiService apiService;
 
-    public static ApiService getApiService() {
-        return retrofit.create(ApiService.class);
+    // False until BASE_URL points at a real server
+    public static boolean isConfigured() {
+        return HttpUrl.parse(BASE_URL) != null;
     }
-}
 
+    public static synchronized ApiService getApiService() {
+        if (apiService == null) {
+            if (!isConfigured()) {
+                throw new IllegalStateException("RetrofitClient.BASE_URL is not set");
+            }
+            apiService = create(BASE_URL);
+        }
+        return apiService;
+    }
+
+    public static ApiService create(String baseUrl) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_CONNECTIONS * 2);
+        dispatcher.setMaxRequestsPerHost(MAX_CONNECTIONS);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_CONNECTIONS, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(10, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiService.class);
+    }
+}
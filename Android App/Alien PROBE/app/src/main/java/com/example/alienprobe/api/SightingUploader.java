@@ -0,0 +1,238 @@
+package com.example.alienprobe.api;
+
+import android.content.Context;
+
+import com.example.alienprobe.database.DataBaseHelper;
+import com.example.alienprobe.database.TagModel;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import retrofit2.Response;
+
+// Uploads stored sightings, oldest first, as gzip-compressed JSON batches.
+// SIGHTINGS is the outbox: every row above the uploaded-through mark is still to be sent, and
+// the mark only moves once the server has taken a batch. The end of the batch in flight is saved
+// first, so after a failure (or a restart) exactly the same rows go again under the same
+// Idempotency-Key, and the server can drop a batch whose reply was lost in a dead zone.
+// Failed attempts back off exponentially; while the link is up, batches follow each other directly.
+public class SightingUploader {
+    private static final String TAG = "SightingUploader";
+    public static final int MAX_BATCH_ROWS = 1000;
+    // uncompressed JSON per request; a row is about 150 bytes, so rows usually run out first
+    public static final int MAX_BATCH_BYTES = 512 * 1024;
+    public static final long IDLE_POLL_MS = 15_000;
+    public static final long MIN_BACKOFF_MS = 2_000;
+    public static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private static SightingUploader instance;
+
+    // Where the sightings and the upload progress are kept; DataBaseHelper in the app
+    public interface Outbox {
+        // Sightings with an ID above afterId, oldest first
+        List<TagModel> getSightingsAfter(long afterId, int limit);
+        long getUploadedThrough();
+        void setUploadedThrough(long id);
+        // Last ID of the batch in flight, 0 if none
+        long getPendingThrough();
+        void setPendingThrough(long id);
+        String getDeviceId();
+    }
+
+    // One element of the upload's "sightings" array; field names are the JSON contract
+    private static final class Row {
+        final long id;
+        final String epc;
+        final long timeMs;
+        final double latitude;
+        final double longitude;
+        final String vehicle;
+
+        Row(TagModel tag) {
+            this.id = tag.getId();
+            this.epc = tag.getEPC();
+            this.timeMs = tag.getTimeMillis();
+            this.latitude = tag.getLatitude();
+            this.longitude = tag.getLongitude();
+            this.vehicle = tag.getVehicle();
+        }
+    }
+
+    private final ApiService api;
+    private final Outbox outbox;
+    private final ApiLog log;
+    private final Gson gson = new Gson();
+    private final Random random = new Random();
+    private final Object wakeLock = new Object();
+    private final AtomicLong uploaded = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private boolean wakeRequested; // guarded by wakeLock
+    private Thread thread;
+
+    public static synchronized SightingUploader getInstance(Context context) {
+        if (instance == null) {
+            instance = new SightingUploader(RetrofitClient.getApiService(), DataBaseHelper.getInstance(context), ApiLog.ANDROID);
+            instance.start();
+        }
+        return instance;
+    }
+
+    public SightingUploader(ApiService api, Outbox outbox, ApiLog log) {
+        this.api = api;
+        this.outbox = outbox;
+        this.log = log;
+    }
+
+    // Starts the upload thread; without it, nothing is sent until syncOnce is called
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this::run, "sighting-uploader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // New sightings were stored; sync now instead of at the next poll (a running backoff is kept)
+    public void requestSync() {
+        synchronized (wakeLock) {
+            wakeRequested = true;
+            wakeLock.notifyAll();
+        }
+    }
+
+    // Rows the server has taken since start
+    public long getUploadedCount() {
+        return uploaded.get();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    // Sends batches until the outbox is empty. Returns false at the first failed request;
+    // that batch is the first one sent next time.
+    public synchronized boolean syncOnce() {
+        while (true) {
+            long after = outbox.getUploadedThrough();
+            long through = outbox.getPendingThrough();
+            boolean retry = through > after;
+            String deviceId = outbox.getDeviceId();
+            List<TagModel> rows = outbox.getSightingsAfter(after, MAX_BATCH_ROWS);
+            StringBuilder json = new StringBuilder("{\"deviceId\":")
+                    .append(gson.toJson(deviceId))
+                    .append(",\"sightings\":[");
+            int count = 0;
+            for (TagModel row : rows) {
+                if (retry && row.getId() > through) {
+                    break;
+                }
+                String rowJson = gson.toJson(new Row(row));
+                // a retry keeps its rows whatever the size; they fit when first sent
+                if (!retry && count > 0 && json.length() + rowJson.length() + 2 > MAX_BATCH_BYTES) {
+                    break;
+                }
+                if (count > 0) {
+                    json.append(',');
+                }
+                json.append(rowJson);
+                count++;
+            }
+            if (count == 0) {
+                if (!retry) {
+                    return true;
+                }
+                // every row of the failed batch was deleted meanwhile; nothing left to resend
+                markUploaded(through, 0);
+                continue;
+            }
+            if (!retry) {
+                through = rows.get(count - 1).getId();
+                outbox.setPendingThrough(through);
+            }
+            if (!send(deviceId + "/" + after + "-" + through, json.append("]}").toString())) {
+                return false;
+            }
+            markUploaded(through, count);
+        }
+    }
+
+    private void markUploaded(long through, int count) {
+        outbox.setUploadedThrough(through);
+        outbox.setPendingThrough(0);
+        uploaded.addAndGet(count);
+    }
+
+    // key names the ID range, not the rows in it: those can only shrink between attempts
+    private boolean send(String key, String json) {
+        try {
+            byte[] body = gzip(json);
+            requests.incrementAndGet();
+            Response<Void> response = api.uploadSightings(key, RequestBody.create(body, JSON)).execute();
+            // 409: the server already has this key
+            if (response.isSuccessful() || response.code() == 409) {
+                return true;
+            }
+            log.warn(TAG, "Upload " + key + " failed: HTTP " + response.code(), null);
+        } catch (IOException e) {
+            log.warn(TAG, "Upload " + key + " failed: " + e, null);
+        }
+        return false;
+    }
+
+    static byte[] gzip(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    // Wait before retry number failures + 1: doubling from MIN_BACKOFF_MS up to MAX_BACKOFF_MS,
+    // with the upper half randomized so a fleet coming out of one dead zone does not retry in step
+    static long backoffMs(int failures, Random random) {
+        long ceiling = MAX_BACKOFF_MS;
+        if (failures < 20) {
+            ceiling = Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << failures);
+        }
+        return ceiling / 2 + (long) (random.nextDouble() * (ceiling / 2));
+    }
+
+    private void run() {
+        int failures = 0;
+        while (true) {
+            boolean synced;
+            try {
+                synced = syncOnce();
+            } catch (RuntimeException e) {
+                // a database error; keep the thread and try again later
+                log.warn(TAG, "Upload stopped", e);
+                synced = false;
+            }
+            try {
+                if (synced) {
+                    failures = 0;
+                    synchronized (wakeLock) {
+                        if (!wakeRequested) {
+                            wakeLock.wait(IDLE_POLL_MS);
+                        }
+                        wakeRequested = false;
+                    }
+                } else {
+                    // new sightings keep arriving in a dead zone; they must not cut the backoff short
+                    Thread.sleep(backoffMs(failures++, random));
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
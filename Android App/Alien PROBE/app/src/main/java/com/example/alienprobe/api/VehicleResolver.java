@@ -0,0 +1,238 @@
+package com.example.alienprobe.api;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import com.example.alienprobe.java.Vehicle;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Permit number -> vehicles, in front of ApiService.
+// Answers come from a size-bounded LRU cache while fresh. Permits the server does not know are
+// cached too (for a shorter time), concurrent lookups of one permit share a single request,
+// misses from one poll go out together through PermitBatcher, and the cache is saved to disk
+// so a warm start can label tags with no network. When the server cannot be reached, a stale
+// answer is better than none and is returned instead of an error.
+public class VehicleResolver {
+    public static final int MAX_ENTRIES = 5000;
+    public static final long TTL_MS = 12 * 60 * 60 * 1000L;
+    public static final long NEGATIVE_TTL_MS = 10 * 60 * 1000L;
+    private static final int MAX_CONCURRENT_REQUESTS = 8;
+    private static final String CACHE_FILE = "vehicle_cache.json";
+    private static final String TAG = "VehicleResolver";
+
+    private static VehicleResolver instance;
+
+    public interface Clock {
+        long now();
+    }
+
+    private static final class Entry {
+        final int permitId;
+        final List<Vehicle> vehicles; // empty: the server knows no vehicle for this permit
+        final long fetchedAt;
+
+        Entry(int permitId, List<Vehicle> vehicles, long fetchedAt) {
+            this.permitId = permitId;
+            this.vehicles = vehicles;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    @Nullable private final File cacheFile;
+    private final Clock clock;
+    private final ApiLog log;
+    private final Gson gson = new Gson();
+    private final ExecutorService executor;
+    // access-ordered, so iteration starts at the least recently used permit; guarded by itself
+    private final LinkedHashMap<Integer, Entry> cache;
+    private final ConcurrentHashMap<Integer, CompletableFuture<List<Vehicle>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicBoolean saveQueued = new AtomicBoolean();
+    private final PermitBatcher batcher;
+
+    public static synchronized VehicleResolver getInstance(Context context) {
+        if (instance == null) {
+            instance = new VehicleResolver(RetrofitClient.getApiService(),
+                    new File(context.getApplicationContext().getFilesDir(), CACHE_FILE),
+                    MAX_ENTRIES, ApiLog.ANDROID, System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    public VehicleResolver(ApiService api, @Nullable File cacheFile, final int maxEntries, ApiLog log, Clock clock) {
+        this.cacheFile = cacheFile;
+        this.log = log;
+        this.clock = clock;
+        this.cache = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS, runnable -> {
+            Thread thread = new Thread(runnable, "vehicle-lookup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batcher = new PermitBatcher(api, executor, log);
+        load();
+    }
+
+    // The permit number printed into a tag's EPC: its last five hex digits, read as decimal
+    @Nullable
+    public static Integer permitIdForEpc(String epc) {
+        if (epc == null || epc.length() < 5) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(epc.substring(epc.length() - 5));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Vehicles for a permit, an empty list if it has none. Completes on a lookup thread unless cached.
+    public CompletableFuture<List<Vehicle>> resolve(int permitId) {
+        Entry cached = get(permitId);
+        if (cached != null && isFresh(cached)) {
+            return CompletableFuture.completedFuture(cached.vehicles);
+        }
+        CompletableFuture<List<Vehicle>> pending = inFlight.get(permitId);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<List<Vehicle>> future = new CompletableFuture<>();
+        pending = inFlight.putIfAbsent(permitId, future);
+        if (pending != null) {
+            return pending;
+        }
+        final Entry stale = cached;
+        batcher.lookup(permitId).whenComplete((vehicles, error) -> {
+            if (error == null) {
+                vehicles = Collections.unmodifiableList(vehicles);
+                put(new Entry(permitId, vehicles, clock.now()));
+            }
+            // leave inFlight before completing, so nobody woken by this answer can be handed it again
+            inFlight.remove(permitId, future);
+            if (error == null) {
+                future.complete(vehicles);
+            } else if (stale != null) {
+                // the server could not be reached, and that says nothing about the permit
+                future.complete(stale.vehicles);
+            } else {
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+
+    // Cached vehicles for a permit, fresh or stale, without going to the network
+    @Nullable
+    public List<Vehicle> peek(int permitId) {
+        Entry cached = get(permitId);
+        return cached != null ? cached.vehicles : null;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    // HTTP requests made so far
+    public int getRequestCount() {
+        return batcher.getRequestCount();
+    }
+
+    private boolean isFresh(Entry entry) {
+        long ttl = entry.vehicles.isEmpty() ? NEGATIVE_TTL_MS : TTL_MS;
+        return clock.now() - entry.fetchedAt < ttl;
+    }
+
+    @Nullable
+    private Entry get(int permitId) {
+        synchronized (cache) {
+            return cache.get(permitId);
+        }
+    }
+
+    private void put(Entry entry) {
+        synchronized (cache) {
+            cache.put(entry.permitId, entry);
+        }
+        // one save for a burst of lookups
+        if (cacheFile != null && saveQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                saveQueued.set(false);
+                save();
+            });
+        }
+    }
+
+    // Writes the cache next to the old file and swaps it in, so a crash never leaves half a file
+    public synchronized void save() {
+        if (cacheFile == null) {
+            return;
+        }
+        List<Entry> entries;
+        synchronized (cache) {
+            entries = new ArrayList<>(cache.values());
+        }
+        File temp = new File(cacheFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            gson.toJson(entries, writer);
+        } catch (IOException e) {
+            log.warn(TAG, "Could not save vehicle cache", e);
+            return;
+        }
+        if (!temp.renameTo(cacheFile)) {
+            log.warn(TAG, "Could not replace " + cacheFile, null);
+        }
+    }
+
+    private void load() {
+        if (cacheFile == null || !cacheFile.exists()) {
+            return;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8)) {
+            List<Entry> entries = gson.fromJson(reader, new TypeToken<List<Entry>>() {}.getType());
+            if (entries == null) {
+                return;
+            }
+            synchronized (cache) {
+                // saved least recently used first, so the LRU order survives the restart
+                for (Entry entry : entries) {
+                    if (entry.vehicles != null) {
+                        cache.put(entry.permitId, entry);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // a corrupt cache only costs a cold start
+            log.warn(TAG, "Could not load vehicle cache", e);
+        }
+    }
+}
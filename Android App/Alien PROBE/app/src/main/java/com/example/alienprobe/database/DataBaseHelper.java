@@ -2,107 +2,484 @@ package com.example.alienprobe.database;
 
 import android.content.ContentValues;
 import android.content.Context;
-import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.database.Cursor;
+import android.util.Log;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
 
 import androidx.annotation.Nullable;
 
-public class DataBaseHelper extends SQLiteOpenHelper {
-    public static final String RFIDTAG_TABLE = "RFIDTAG_TABLE";
+import com.example.alienprobe.api.SightingUploader;
+import com.example.alienprobe.java.TagListParser;
+import com.example.alienprobe.java.TagRead;
+
+public class DataBaseHelper extends SQLiteOpenHelper implements SightingUploader.Outbox {
+    private static final String TAG = "DataBaseHelper";
+    private static final int DATABASE_VERSION = 3;
+    // rows per DELETE, well under SQLite's 999 bound parameters
+    private static final int DELETE_CHUNK = 500;
+    // sighting IDs per DELETE when purging by time with progress
+    private static final int DELETE_ID_RANGE = 10_000;
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    // Version 2: one row per tag, one row per sighting of it
+    public static final String TAGS_TABLE = "TAGS";
+    public static final String SIGHTINGS_TABLE = "SIGHTINGS";
 
     //DB Fields
     public static final String COLUMN_ID = "ID";
+    public static final String COLUMN_EPC = "EPC";            // TAGS: EPC as a blob, two hex digits per byte
+    public static final String COLUMN_VEHICLE = "VEHICLE";    // TAGS: last known vehicle for the tag
+    public static final String COLUMN_TAG_ID = "TAG_ID";      // SIGHTINGS: TAGS.ID
+    public static final String COLUMN_TIME_MS = "TIME_MS";    // SIGHTINGS: epoch millis
+    public static final String COLUMN_LAT_E7 = "LAT_E7";      // SIGHTINGS: degrees * 10^7
+    public static final String COLUMN_LON_E7 = "LON_E7";      // SIGHTINGS: degrees * 10^7
+
+    // Version 3: sighting IDs are never reused, and upload progress lives next to the data
+    public static final String SYNC_STATE_TABLE = "SYNC_STATE";
+    public static final String COLUMN_NAME = "NAME";
+    public static final String COLUMN_VALUE = "VALUE";
+    private static final String STATE_DEVICE_ID = "device_id";
+    private static final String STATE_UPLOADED_THROUGH = "uploaded_through";
+    private static final String STATE_PENDING_THROUGH = "pending_through";
+
+    // Version 1: one row per EPC, only the first sighting kept
+    public static final String RFIDTAG_TABLE = "RFIDTAG_TABLE";
     public static final String COLUMN_EPC_STRING = "EPC_STRING";
     public static final String COLUMN_LAT_DOUBLE = "LATITUDE";
     public static final String COLUMN_LONG_DOUBLE = "LONGITUDE";
     public static final String COLUMN_TIME = "TIME";
-    public static final String COLUMN_VEHICLE = "VEHICLE";
+
+    // Adds the tag if it is new, otherwise refreshes its vehicle when one is given
+    static final String UPSERT_TAG_SQL = "INSERT INTO " + TAGS_TABLE + " (" + COLUMN_EPC + ", " + COLUMN_VEHICLE + ")" +
+            " VALUES (?, ?) ON CONFLICT(" + COLUMN_EPC + ") DO UPDATE SET " + COLUMN_VEHICLE + " = COALESCE(excluded." + COLUMN_VEHICLE + ", " + COLUMN_VEHICLE + ")";
+    static final String INSERT_SIGHTING_SQL = "INSERT INTO " + SIGHTINGS_TABLE +
+            " (" + COLUMN_TAG_ID + ", " + COLUMN_TIME_MS + ", " + COLUMN_LAT_E7 + ", " + COLUMN_LON_E7 + ")" +
+            " SELECT " + COLUMN_ID + ", ?, ?, ? FROM " + TAGS_TABLE + " WHERE " + COLUMN_EPC + " = ?";
+
+    private static final String SELECT_SIGHTINGS = "SELECT S." + COLUMN_ID + ", T." + COLUMN_EPC +
+            ", S." + COLUMN_LON_E7 + ", S." + COLUMN_LAT_E7 + ", S." + COLUMN_TIME_MS + ", T." + COLUMN_VEHICLE +
+            " FROM " + SIGHTINGS_TABLE + " S JOIN " + TAGS_TABLE + " T ON T." + COLUMN_ID + " = S." + COLUMN_TAG_ID;
+
+    private static DataBaseHelper instance;
+
     public DataBaseHelper(@Nullable Context context) {
-        super(context, "RF" + COLUMN_ID + "Tag.db", null, 1);
+        this(context, "RF" + COLUMN_ID + "Tag.db");
+    }
+
+    // A database under another name, for tests
+    DataBaseHelper(@Nullable Context context, @Nullable String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    // One helper (and so one open connection) for the whole app; TagWriter writes through it
+    public static synchronized DataBaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DataBaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.setForeignKeyConstraintsEnabled(true);
     }
 
     //Create SQLite DB for holding RFIDTag info data
     @Override
     public void onCreate(SQLiteDatabase db) {
-        String createTableStatement = "CREATE TABLE " + RFIDTAG_TABLE + " (" +
-                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                COLUMN_EPC_STRING + " TEXT NOT NULL UNIQUE, " +
-                COLUMN_LONG_DOUBLE + " DOUBLE NOT NULL, " +
-                COLUMN_LAT_DOUBLE + " DOUBLE NOT NULL, " +
-                COLUMN_TIME + " TEXT NOT NULL, " +
-                COLUMN_VEHICLE + " TEXT NOT NULL)";
-        db.execSQL(createTableStatement);
+        createTables(db);
     }
 
-    //updates DB
+    //updates DB; runs inside the open helper's transaction
     @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // builds the current tables directly
+            migrateToV2(db);
+        } else if (oldVersion < 3) {
+            migrateToV3(db);
+        }
+    }
+
+    private static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TAGS_TABLE + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY, " +
+                COLUMN_EPC + " BLOB NOT NULL UNIQUE, " +
+                COLUMN_VEHICLE + " TEXT)");
+        createSightingsTable(db);
+        createSyncStateTable(db);
+    }
+
+    private static void createSyncStateTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + SYNC_STATE_TABLE + " (" +
+                COLUMN_NAME + " TEXT PRIMARY KEY, " +
+                COLUMN_VALUE + " TEXT NOT NULL)");
+    }
+
+    // AUTOINCREMENT: a deleted sighting's ID is never handed out again, so an ID at or below
+    // the upload high-water mark always means "already uploaded"
+    private static void createSightingsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + SIGHTINGS_TABLE + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_TAG_ID + " INTEGER NOT NULL REFERENCES " + TAGS_TABLE + "(" + COLUMN_ID + ") ON DELETE CASCADE, " +
+                COLUMN_TIME_MS + " INTEGER NOT NULL, " +
+                COLUMN_LAT_E7 + " INTEGER NOT NULL, " +
+                COLUMN_LON_E7 + " INTEGER NOT NULL)");
+        // Both indexes carry every SIGHTINGS column (ID is the rowid), so lookups never touch the table
+        db.execSQL("CREATE INDEX SIGHTINGS_BY_TAG ON " + SIGHTINGS_TABLE +
+                " (" + COLUMN_TAG_ID + ", " + COLUMN_TIME_MS + ", " + COLUMN_LAT_E7 + ", " + COLUMN_LON_E7 + ")");
+        db.execSQL("CREATE INDEX SIGHTINGS_BY_TIME ON " + SIGHTINGS_TABLE +
+                " (" + COLUMN_TIME_MS + ", " + COLUMN_TAG_ID + ", " + COLUMN_LAT_E7 + ", " + COLUMN_LON_E7 + ")");
+    }
+
+    // Moves every version 1 row into TAGS + SIGHTINGS and drops the old table.
+    // A row with no EPC to be found in it is logged and left behind.
+    private static void migrateToV2(SQLiteDatabase db) {
+        createTables(db);
+        SQLiteStatement upsertTag = db.compileStatement(UPSERT_TAG_SQL);
+        SQLiteStatement insertSighting = db.compileStatement(INSERT_SIGHTING_SQL);
+        SimpleDateFormat v1TimeFormat = new SimpleDateFormat(TagModel.TIME_PATTERN, Locale.US);
+        TagListParser parser = TagListParser.text();
+        int migrated = 0;
+        int skipped = 0;
+        try (Cursor cursor = db.query(RFIDTAG_TABLE, null, null, null, null, null, COLUMN_ID)) {
+            int epcColumn = cursor.getColumnIndexOrThrow(COLUMN_EPC_STRING);
+            int latColumn = cursor.getColumnIndexOrThrow(COLUMN_LAT_DOUBLE);
+            int longColumn = cursor.getColumnIndexOrThrow(COLUMN_LONG_DOUBLE);
+            int timeColumn = cursor.getColumnIndexOrThrow(COLUMN_TIME);
+            int vehicleColumn = cursor.getColumnIndexOrThrow(COLUMN_VEHICLE);
+            while (cursor.moveToNext()) {
+                String stored = cursor.getString(epcColumn);
+                String epc = v1Epc(parser, stored);
+                if (epc == null) {
+                    Log.w(TAG, "No EPC in version 1 row \"" + stored + "\", skipped");
+                    skipped++;
+                    continue;
+                }
+                long timeMillis = 0;
+                try {
+                    timeMillis = v1TimeFormat.parse(cursor.getString(timeColumn)).getTime();
+                } catch (ParseException e) {
+                    Log.w(TAG, "Unreadable time on " + epc + ", migrated as 0");
+                }
+                // version 1 wrote latitude into LONGITUDE and longitude into LATITUDE
+                TagModel tag = new TagModel(-1, epc,
+                        cursor.getDouble(latColumn), cursor.getDouble(longColumn),
+                        timeMillis, cursor.getString(vehicleColumn));
+                insert(upsertTag, insertSighting, tag);
+                migrated++;
+            }
+        }
+        db.execSQL("DROP TABLE " + RFIDTAG_TABLE);
+        Log.i(TAG, "Migrated " + migrated + " tags to version 2, skipped " + skipped);
+    }
+
+    // Version 1 stored each tag as the whole line the reader sent for it, e.g.
+    // "Tag:E200 3411 B802 0115 1612 7239, Disc:..., Ant:0" in the reader's default Text format,
+    // or a Terse line or bare EPC if the reader was set up that way. Returns the EPC, or null.
+    static String v1Epc(TagListParser parser, @Nullable String stored) {
+        if (stored == null) {
+            return null;
+        }
+        TagRead[] first = new TagRead[1];
+        parser.parse(stored, read -> {
+            if (first[0] == null) {
+                first[0] = read;
+            }
+        });
+        return first[0] == null ? null : first[0].getEPC();
+    }
+
+    // Rebuilds SIGHTINGS with AUTOINCREMENT IDs and adds SYNC_STATE; IDs are kept as they are
+    private static void migrateToV3(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + SIGHTINGS_TABLE + " RENAME TO " + SIGHTINGS_TABLE + "_V2");
+        db.execSQL("DROP INDEX SIGHTINGS_BY_TAG");
+        db.execSQL("DROP INDEX SIGHTINGS_BY_TIME");
+        createSightingsTable(db);
+        db.execSQL("INSERT INTO " + SIGHTINGS_TABLE + " SELECT * FROM " + SIGHTINGS_TABLE + "_V2");
+        db.execSQL("DROP TABLE " + SIGHTINGS_TABLE + "_V2");
+        createSyncStateTable(db);
+    }
+
+    // Binds and runs the two statements that store one sighting
+    static void insert(SQLiteStatement upsertTag, SQLiteStatement insertSighting, TagModel tag) {
+        byte[] epc = epcToBlob(tag.getEPC());
+        upsertTag.bindBlob(1, epc);
+        if (tag.getVehicle() != null) {
+            upsertTag.bindString(2, tag.getVehicle());
+        } else {
+            upsertTag.bindNull(2);
+        }
+        upsertTag.executeInsert();
+        insertSighting.bindLong(1, tag.getTimeMillis());
+        insertSighting.bindLong(2, toE7(tag.getLatitude()));
+        insertSighting.bindLong(3, toE7(tag.getLongitude()));
+        insertSighting.bindBlob(4, epc);
+        insertSighting.executeInsert();
+    }
 
-    //Add TagModel to DB (This is info from the ScannerActivity.kt file)
-    public boolean addOne(TagModel tag) {
+    //Tag delete occurs inside of TagAdapter view; removes one sighting
+    public boolean deleteTag(String tagId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues cv = new ContentValues();
+        return db.delete(SIGHTINGS_TABLE, COLUMN_ID + " = ?", new String[]{tagId}) > 0;
+    }
 
-        cv.put(COLUMN_EPC_STRING, tag.getEPC());
-        cv.put(COLUMN_LAT_DOUBLE, tag.getLongitude());
-        cv.put(COLUMN_LONG_DOUBLE, tag.getLatitude());
-        cv.put(COLUMN_TIME, tag.getTime());
-        cv.put(COLUMN_VEHICLE, tag.getVehicle().toString());
+    public interface DeleteProgress {
+        void onProgress(int deleted, int total);
+    }
 
+    // Deletes the given sightings in one transaction, DELETE_CHUNK at a time, reporting after each chunk.
+    // Returns how many rows were deleted. Call off the main thread.
+    public int deleteSightings(List<Integer> ids, @Nullable DeleteProgress progress) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement fullChunk = null;
+        int deleted = 0;
+        db.beginTransaction();
         try {
-            // insertOrThrow() will throw SQLiteConstraintException if a UNIQUE constraint is violated
-            db.insertOrThrow(RFIDTAG_TABLE, null, cv);
-            return true;
-        } catch (SQLiteConstraintException e) {
-            // You could log or handle the specific SQLiteConstraintException here if needed
-            return false;
+            for (int start = 0; start < ids.size(); start += DELETE_CHUNK) {
+                int size = Math.min(DELETE_CHUNK, ids.size() - start);
+                SQLiteStatement delete;
+                if (size == DELETE_CHUNK) {
+                    if (fullChunk == null) {
+                        fullChunk = compileDeleteChunk(db, DELETE_CHUNK);
+                    }
+                    delete = fullChunk;
+                } else {
+                    delete = compileDeleteChunk(db, size);
+                }
+                for (int i = 0; i < size; i++) {
+                    delete.bindLong(i + 1, ids.get(start + i));
+                }
+                deleted += delete.executeUpdateDelete();
+                if (progress != null) {
+                    progress.onProgress(start + size, ids.size());
+                }
+            }
+            db.setTransactionSuccessful();
         } finally {
-            db.close();
+            db.endTransaction();
         }
+        return deleted;
     }
 
-    //Tag delete occurs inside of TagAdapter view
-    public boolean deleteTag(String tagId) {
+    private static SQLiteStatement compileDeleteChunk(SQLiteDatabase db, int size) {
+        StringBuilder sql = new StringBuilder("DELETE FROM " + SIGHTINGS_TABLE + " WHERE " + COLUMN_ID + " IN (?");
+        for (int i = 1; i < size; i++) {
+            sql.append(",?");
+        }
+        return db.compileStatement(sql.append(')').toString());
+    }
+
+    // Deletes every sighting before beforeMillis (Long.MAX_VALUE for all of them) in one transaction.
+    // The database does the matching; with progress it goes DELETE_ID_RANGE sighting IDs at a time
+    // and reports rows deleted out of rows matched. Returns how many rows were deleted. Call off the main thread.
+    public int deleteSightingsBefore(long beforeMillis, @Nullable DeleteProgress progress) {
         SQLiteDatabase db = this.getWritableDatabase();
-        return db.delete(RFIDTAG_TABLE, "id = ?", new String[]{tagId}) > 0;
+        String before = String.valueOf(beforeMillis);
+        String where = COLUMN_TIME_MS + " < ?";
+        int deleted = 0;
+        db.beginTransaction();
+        try {
+            if (progress == null) {
+                deleted = db.delete(SIGHTINGS_TABLE, where, new String[]{before});
+            } else {
+                int total;
+                long firstId;
+                long lastId;
+                try (Cursor cursor = db.rawQuery("SELECT COUNT(*), MIN(" + COLUMN_ID + "), MAX(" + COLUMN_ID + ")" +
+                        " FROM " + SIGHTINGS_TABLE + " WHERE " + where, new String[]{before})) {
+                    cursor.moveToFirst();
+                    total = cursor.getInt(0);
+                    firstId = cursor.getLong(1);
+                    lastId = cursor.getLong(2);
+                }
+                SQLiteStatement delete = db.compileStatement("DELETE FROM " + SIGHTINGS_TABLE +
+                        " WHERE " + where + " AND " + COLUMN_ID + " BETWEEN ? AND ?");
+                for (long from = firstId; total > 0 && from <= lastId; from += DELETE_ID_RANGE) {
+                    delete.bindLong(1, beforeMillis);
+                    delete.bindLong(2, from);
+                    delete.bindLong(3, Math.min(lastId, from + DELETE_ID_RANGE - 1));
+                    deleted += delete.executeUpdateDelete();
+                    progress.onProgress(deleted, total);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return deleted;
+    }
+
+    // IDs of every sighting within about radiusMeters of a point (a lot, a street), for deleteSightings
+    public List<Integer> getSightingIdsNear(double latitude, double longitude, double radiusMeters) {
+        double latDegrees = radiusMeters / METERS_PER_DEGREE;
+        double lonDegrees = radiusMeters / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        return queryIds("SELECT " + COLUMN_ID + " FROM " + SIGHTINGS_TABLE +
+                " WHERE " + COLUMN_LAT_E7 + " BETWEEN ? AND ? AND " + COLUMN_LON_E7 + " BETWEEN ? AND ?",
+                new String[]{
+                        String.valueOf(toE7(latitude - latDegrees)), String.valueOf(toE7(latitude + latDegrees)),
+                        String.valueOf(toE7(longitude - lonDegrees)), String.valueOf(toE7(longitude + lonDegrees))});
     }
 
-    //Used inside of ViewTagsActivity.kt
+    private List<Integer> queryIds(String sql, String[] args) {
+        List<Integer> ids = new ArrayList<>();
+        try (Cursor cursor = this.getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
+        }
+        return ids;
+    }
+
+    //Used inside of ViewTagsActivity.kt; every sighting, oldest first
     public List<TagModel> getAllTags() {
-        List<TagModel> returnList = new ArrayList<>();
+        return querySightings(SELECT_SIGHTINGS + " ORDER BY S." + COLUMN_ID, null);
+    }
+
+    // Up to limit sightings with an ID below beforeId, newest first.
+    // Pass Long.MAX_VALUE for the first page and the last ID seen for each page after it;
+    // every page is a rowid range scan, so it costs the same however large the table is.
+    public List<TagModel> getSightingsPage(long beforeId, int limit) {
+        return querySightings(SELECT_SIGHTINGS + " WHERE S." + COLUMN_ID + " < ?" +
+                " ORDER BY S." + COLUMN_ID + " DESC LIMIT ?", new String[]{String.valueOf(beforeId), String.valueOf(limit)});
+    }
+
+    // Every sighting of one tag, oldest first
+    public List<TagModel> getSightings(String epc) {
+        return getSightings(epc, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Sightings of one tag between fromMillis (inclusive) and toMillis (exclusive), oldest first.
+    // "Was this car here at 9am and still at 3pm?" is two of these.
+    public List<TagModel> getSightings(String epc, long fromMillis, long toMillis) {
+        // rawQuery binds only strings, which never equal a blob, so the validated hex goes in as a literal
+        return querySightings(SELECT_SIGHTINGS + " WHERE T." + COLUMN_EPC + " = X'" + epcToHex(epc) + "'" +
+                " AND S." + COLUMN_TIME_MS + " >= " + fromMillis + " AND S." + COLUMN_TIME_MS + " < " + toMillis +
+                " ORDER BY S." + COLUMN_TIME_MS, null);
+    }
+
+    // Every tag seen between fromMillis (inclusive) and toMillis (exclusive), oldest first
+    public List<TagModel> getSightingsBetween(long fromMillis, long toMillis) {
+        return querySightings(SELECT_SIGHTINGS + " WHERE S." + COLUMN_TIME_MS + " >= ? AND S." + COLUMN_TIME_MS + " < ?" +
+                " ORDER BY S." + COLUMN_TIME_MS, new String[]{String.valueOf(fromMillis), String.valueOf(toMillis)});
+    }
 
-        // Get data from the database
-        String queryString = "SELECT * FROM " + RFIDTAG_TABLE;
+    private List<TagModel> querySightings(String sql, String[] args) {
+        List<TagModel> returnList = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(queryString, null);
-
-        int i = 0;
-        if (cursor.moveToFirst()) {
-            do {
-                int tagID = cursor.getInt(0);
-                String epcString = cursor.getString(1);
-                double longitude = cursor.getDouble(2);
-                double latitude = cursor.getDouble(3);
-                String time = cursor.getString(4);
-                String vehicle = cursor.getString(5);
-
-                TagModel tmpTag = new TagModel(tagID, epcString, longitude, latitude, time, vehicle);
-                System.out.println("New tag create with id: " + tmpTag.getId() + " epc: " + tmpTag.getEPC());
-
-                returnList.add(i,tmpTag);
-                System.out.println(returnList);
-                i++;
-            } while (cursor.moveToNext());
+        try (Cursor cursor = db.rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                returnList.add(new TagModel(
+                        cursor.getInt(0),
+                        blobToEpc(cursor.getBlob(1)),
+                        fromE7(cursor.getInt(2)),
+                        fromE7(cursor.getInt(3)),
+                        cursor.getLong(4),
+                        cursor.getString(5)));
+            }
         }
-
-        cursor.close();
-        db.close();
-        System.out.println(returnList);
         return returnList;
     }
+
+    // Sightings with an ID above afterId, oldest first; the upload queue
+    @Override
+    public List<TagModel> getSightingsAfter(long afterId, int limit) {
+        return querySightings(SELECT_SIGHTINGS + " WHERE S." + COLUMN_ID + " > ?" +
+                " ORDER BY S." + COLUMN_ID + " LIMIT ?", new String[]{String.valueOf(afterId), String.valueOf(limit)});
+    }
+
+    // Every sighting up to this ID has been uploaded
+    @Override
+    public long getUploadedThrough() {
+        return Long.parseLong(getState(STATE_UPLOADED_THROUGH, "0"));
+    }
+
+    @Override
+    public void setUploadedThrough(long id) {
+        setState(STATE_UPLOADED_THROUGH, String.valueOf(id));
+    }
+
+    // Last ID of the batch being sent, 0 if none; a retry resends exactly that batch
+    @Override
+    public long getPendingThrough() {
+        return Long.parseLong(getState(STATE_PENDING_THROUGH, "0"));
+    }
+
+    @Override
+    public void setPendingThrough(long id) {
+        setState(STATE_PENDING_THROUGH, String.valueOf(id));
+    }
+
+    // Names this copy of the database to the server; a reinstall starts a new one,
+    // so its restarted IDs are never mistaken for ones already uploaded
+    @Override
+    public synchronized String getDeviceId() {
+        String id = getState(STATE_DEVICE_ID, null);
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+            setState(STATE_DEVICE_ID, id);
+        }
+        return id;
+    }
+
+    private String getState(String name, @Nullable String fallback) {
+        try (Cursor cursor = this.getReadableDatabase().rawQuery("SELECT " + COLUMN_VALUE + " FROM " + SYNC_STATE_TABLE +
+                " WHERE " + COLUMN_NAME + " = ?", new String[]{name})) {
+            return cursor.moveToFirst() ? cursor.getString(0) : fallback;
+        }
+    }
+
+    private void setState(String name, String value) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME, name);
+        values.put(COLUMN_VALUE, value);
+        this.getWritableDatabase().insertWithOnConflict(SYNC_STATE_TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    // Degrees as fixed point, 1e-7 degree (about 1 cm) resolution
+    static long toE7(double degrees) {
+        return Math.round(degrees * 1e7);
+    }
+
+    static double fromE7(long e7) {
+        return e7 / 1e7;
+    }
+
+    // Hex EPC, left-padded to whole bytes
+    static byte[] epcToBlob(String epc) {
+        String hex = epcToHex(epc);
+        byte[] blob = new byte[hex.length() / 2];
+        for (int i = 0; i < blob.length; i++) {
+            blob[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return blob;
+    }
+
+    static String blobToEpc(byte[] blob) {
+        char[] hex = new char[blob.length * 2];
+        for (int i = 0; i < blob.length; i++) {
+            hex[2 * i] = Character.toUpperCase(Character.forDigit((blob[i] >> 4) & 0xF, 16));
+            hex[2 * i + 1] = Character.toUpperCase(Character.forDigit(blob[i] & 0xF, 16));
+        }
+        return new String(hex);
+    }
+
+    private static String epcToHex(String epc) {
+        String hex = epc.replace(" ", "").toUpperCase(Locale.US);
+        for (int i = 0; i < hex.length(); i++) {
+            if (Character.digit(hex.charAt(i), 16) < 0) {
+                throw new IllegalArgumentException("Not a hex EPC: " + epc);
+            }
+        }
+        return hex.length() % 2 == 0 ? hex : "0" + hex;
+    }
 }
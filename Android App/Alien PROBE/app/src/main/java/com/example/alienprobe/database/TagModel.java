@@ -2,24 +2,35 @@
 package com.example.alienprobe.database;
 
 import androidx.annotation.NonNull;
-import com.example.alienprobe.*;
+import com.example.alienprobe.java.TagRead;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 public class TagModel {
+    // how times are shown, and how version 1 of the database stored them
+    public static final String TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
     private int id;
     private String epc;
-    private String time;
+    private final long timeMillis;
     private final double longitude;
     private final double latitude;
     private final String vehicle;
 
-    public TagModel(int id, String epc, double longitude, double latitude, String time, String vehicle) {
+    public TagModel(int id, String epc, double longitude, double latitude, long timeMillis, String vehicle) {
         this.id = id;
         this.epc = epc;
         this.longitude = longitude;
         this.latitude = latitude;
-        this.time = time;
+        this.timeMillis = timeMillis;
         this.vehicle = vehicle;
     }
+    // New (not yet stored) sighting for a decoded reader report
+    public TagModel(TagRead read, double longitude, double latitude, long timeMillis, String vehicle) {
+        this(-1, read.getEPC(), longitude, latitude, timeMillis, vehicle);
+    }
     @NonNull
     @Override
     public String toString() {
@@ -28,7 +39,7 @@ public class TagModel {
                 ", epc='" + epc + '\'' +
                 ", longitude=" + longitude +
                 ", latitude=" + latitude +
-                ", time=" + time +
+                ", time=" + getTime() +
                 ", vehicle=" + vehicle +
                 '}';
     }
@@ -38,8 +49,11 @@ public class TagModel {
     public void setId(int id) {
         this.id = id;
     }
-    public void setTime(String time) { this.time = time; }
-    public String getTime() {return this.time; }
+    public long getTimeMillis() { return this.timeMillis; }
+    // Local time for display
+    public String getTime() {
+        return new SimpleDateFormat(TIME_PATTERN, Locale.getDefault()).format(new Date(timeMillis));
+    }
     public String getEPC() {
         return this.epc;
     }
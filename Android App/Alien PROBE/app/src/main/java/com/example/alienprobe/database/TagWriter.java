@@ -0,0 +1,145 @@
+package com.example.alienprobe.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Writes scanned tags to the database on its own thread.
+// Tags are gathered into batches and each batch is one transaction through precompiled
+// statements (an upsert into TAGS, an insert into SIGHTINGS), so the scanner never waits on disk.
+// If a batch fails it is written again a row at a time, so one bad sighting costs only itself.
+public class TagWriter {
+    private static final String TAG = "TagWriter";
+    private static final int MAX_BATCH = 500;
+    // how long the first tag of a batch may wait for company
+    private static final long LINGER_MS = 200;
+
+    private static TagWriter instance;
+
+    private final DataBaseHelper dbHelper;
+    private final BlockingQueue<TagModel> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private SQLiteDatabase statementDb;
+    private SQLiteStatement upsertTag;
+    private SQLiteStatement insertSighting;
+    private volatile long inserted;
+    @Nullable private volatile Runnable onBatchWritten;
+
+    public static synchronized TagWriter getInstance(Context context) {
+        if (instance == null) {
+            instance = new TagWriter(DataBaseHelper.getInstance(context));
+        }
+        return instance;
+    }
+
+    // Its own thread on dbHelper; the app uses getInstance, tests their own database
+    TagWriter(DataBaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        thread = new Thread(this::run, "tag-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Queues a tag for the next batch; never blocks
+    public void enqueue(TagModel tag) {
+        queue.add(tag);
+    }
+
+    // Runs on the writer thread after each batch is committed
+    public void setOnBatchWritten(@Nullable Runnable listener) {
+        onBatchWritten = listener;
+    }
+
+    public long getInsertedCount() {
+        return inserted;
+    }
+
+    private void run() {
+        List<TagModel> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MS);
+                while (batch.size() < MAX_BATCH) {
+                    long wait = deadline - System.nanoTime();
+                    TagModel next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, MAX_BATCH - batch.size());
+                }
+                write(batch);
+                Runnable listener = onBatchWritten;
+                if (listener != null) {
+                    listener.run();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // keep the writer alive; a bad batch must not stop later ones
+                Log.e(TAG, "Failed to write " + batch.size() + " tags", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<TagModel> batch) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        if (db != statementDb) {
+            upsertTag = db.compileStatement(DataBaseHelper.UPSERT_TAG_SQL);
+            insertSighting = db.compileStatement(DataBaseHelper.INSERT_SIGHTING_SQL);
+            statementDb = db;
+        }
+        long start = System.nanoTime();
+        // a failed batch was rolled back whole
+        int written = writeAll(db, batch) ? batch.size() : writeEach(db, batch);
+        inserted += written;
+        Log.d(TAG, written + " sightings written in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    // The whole batch in one transaction; false if any row failed
+    private boolean writeAll(SQLiteDatabase db, List<TagModel> batch) {
+        db.beginTransaction();
+        try {
+            for (TagModel tag : batch) {
+                DataBaseHelper.insert(upsertTag, insertSighting, tag);
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Batch of " + batch.size() + " failed, writing it row by row: " + e.getMessage());
+            return false;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // One transaction per row; a row that fails is logged and dropped. Returns how many were written.
+    private int writeEach(SQLiteDatabase db, List<TagModel> batch) {
+        int written = 0;
+        for (TagModel tag : batch) {
+            db.beginTransaction();
+            try {
+                DataBaseHelper.insert(upsertTag, insertSighting, tag);
+                db.setTransactionSuccessful();
+                written++;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Dropped sighting of " + tag.getEPC() + " at " + tag.getTimeMillis(), e);
+            } finally {
+                db.endTransaction();
+            }
+        }
+        return written;
+    }
+}
@@ -3,11 +3,11 @@ package com.example.alienprobe.java;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import com.alien.enterpriseRFID.reader.AlienClass1Reader;
+import com.alien.enterpriseRFID.reader.AlienReaderException;
 
-import java.net.Socket;
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 //PASS CONTEXT WHEN CREATING THIS BY USING 'this'
 public class AlienScanner {
@@ -15,64 +15,111 @@ public class AlienScanner {
     public static Integer readerPort;
     public static String readerUserName;
     public static String readerPassword;
-    public static AlienClass1Reader reader = new AlienClass1Reader();
+    public static ReaderSession session;
+    public static boolean streamMode;
+    public static Integer streamPort;
+    private static TagStream tagStream;
+    // Matches the TagListFormat negotiated by the session, Text if the reader refused Custom
+    private final TagListParser textParser = TagListParser.text();
+    private final TagListParser compactParser = TagListParser.custom(ReaderSession.COMPACT_TAGLIST_FORMAT);
+    private static volatile PollStats lastPollStats;
+    // a quiet stream still returns this often, so the scan loop notices it was cancelled
+    private static final long STREAM_WAIT_MS = 1000;
+    private final Context context;
+    private boolean loaded; // guarded by this
 
+    // Cheap enough for onCreate: the settings, the session and the reader library behind it are
+    // loaded by preload() or on first use, both off the main thread
     public AlienScanner(Context context) {
-        loadPreferences(context);
+        this.context = context.getApplicationContext();
+    }
+    // Reads the reader settings and builds its session now; blocks, so call it on a background thread
+    public synchronized void preload() {
+        if (!loaded) {
+            loadPreferences(context);
+            loaded = true;
+        }
     }
     // openReader and closeReader are custom for testing
     public void openReader(){
+        preload();
         try {
-            reader.setConnection(readerIP, readerPort);
-            reader.setUsername(readerUserName);
-            reader.setPassword(readerPassword);
-            reader.open();
-            System.out.println("Connection established with RFID reader.");
+            // any cheap command logs the pooled session in
+            session.doCommand("get ReaderName");
         } catch (Exception e) {
             System.out.println("error");
         }
     }
     public void closeReader(){
-        reader.close();
-        System.out.println("Connection Closed.");
+        preload();
+        session.close();
     }
-    public List<RFIDTag> GetTagList() {
+    // One "t": blocks for the round trip and returns the reads in the reply
+    public List<RFIDTag> pollTags() throws AlienReaderException {
+        preload();
         List<RFIDTag> outputTags = new ArrayList<>();
-        new Thread(() -> {
-            try {
-                Socket socket = new Socket(readerIP, readerPort);
-                reader.setUsername(readerUserName);
-                reader.setPassword(readerPassword);
-
-                if (reader.isValidateOpen()) {
-                    reader.open();
-                    System.out.println("connection opened");
-
-                    Thread.sleep(100);
-
-                    String commandOutput = reader.doReaderCommand("t");
+        // the session stays logged in between polls, so this is a single round trip
+        String commandOutput = session.doCommand("t");
 
-                    System.out.println(commandOutput);
-                    List<String> outputLines = Arrays.stream(commandOutput.split("\\r?\\n"))
-                            .collect(Collectors.toList());
+        TagListParser parser = session.isCustomFormatActive() ? compactParser : textParser;
+        int[] textBytes = {0};
+        long parseStart = System.nanoTime();
+        int tagCount = parser.parse(commandOutput, read -> {
+            outputTags.add(new RFIDTag(read));
+            textBytes[0] += PollStats.textLineBytes(read);
+        });
+        lastPollStats = new PollStats(tagCount, commandOutput.length(), textBytes[0], System.nanoTime() - parseStart);
+        return outputTags;
+    }
+    // Payload size and parse time of the most recent poll, null before the first one
+    public PollStats getLastPollStats() {
+        return lastPollStats;
+    }
+    // Autonomous mode: the reader pushes reads to us instead of being polled with "t"
+    public boolean isStreamMode() {
+        preload();
+        return streamMode;
+    }
+    // Blocking network calls, so start/stop the stream from a background thread.
+    // Throws if the listener cannot start or the reader refuses autonomous mode.
+    public void startStream() throws IOException, AlienReaderException {
+        preload();
+        tagStream.start();
+    }
+    public void stopStream() {
+        preload();
+        tagStream.stop();
+    }
+    // Returns as soon as the reader reports something, or empty after timeoutMs
+    public List<RFIDTag> pollStream(long timeoutMs) throws InterruptedException {
+        preload();
+        List<RFIDTag> outputTags = new ArrayList<>();
+        tagStream.drainTo(outputTags, timeoutMs, TimeUnit.MILLISECONDS);
+        return outputTags;
+    }
+    // The scan loop's source: streamed reads in stream mode, back-to-back "t" polls otherwise.
+    // Either way the reader sets the pace; nothing here sleeps.
+    public TagSource asTagSource() {
+        return new TagSource() {
+            @Override
+            public void open() throws IOException, AlienReaderException {
+                if (isStreamMode()) {
+                    startStream();
+                }
+            }
 
-                    for (String line : outputLines) {
-                        // Assuming each line represents an RFID tag
-                        RFIDTag tag = new RFIDTag(line);
+            @Override
+            public List<RFIDTag> poll() throws Exception {
+                return isStreamMode() ? pollStream(STREAM_WAIT_MS) : pollTags();
+            }
 
-                        outputTags.add(tag);
-                    }
-                    reader.close();
-                    System.out.println("connection closed");
-                    socket.close();
+            @Override
+            public void close() {
+                if (isStreamMode()) {
+                    stopStream();
                 }
-
-            } catch (Exception e) {
-                System.out.println(e);
-                e.printStackTrace();
             }
-        }).start();
-        return outputTags;
+        };
     }
     private void loadPreferences(Context context) {
         SharedPreferences sharedPreferences = context.getSharedPreferences("AppPreferences", Context.MODE_PRIVATE);
@@ -81,9 +128,14 @@ public class AlienScanner {
         readerPort = sharedPreferences.getInt("Port", 23); // Assuming default port 23
         readerUserName = sharedPreferences.getString("Username", "DefaultUsername");
         readerPassword = sharedPreferences.getString("Password", "DefaultPassword");
+        streamMode = sharedPreferences.getBoolean("StreamMode", false);
+        streamPort = sharedPreferences.getInt("StreamPort", TagStream.DEFAULT_PORT);
 
-        reader.setConnection(readerIP, readerPort);
-        reader.setUsername(readerUserName);
-        reader.setPassword(readerPassword);
+        session = ReaderSession.get(readerIP, readerPort, readerUserName, readerPassword);
+        session.setTagListCustomFormat(ReaderSession.COMPACT_TAGLIST_FORMAT);
+        // a running stream keeps its settings until the scan loop stops it
+        if (tagStream == null || !tagStream.isRunning()) {
+            tagStream = new TagStream(session, streamPort);
+        }
     }
 }
\ No newline at end of file
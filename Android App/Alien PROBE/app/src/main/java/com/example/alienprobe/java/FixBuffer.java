@@ -0,0 +1,130 @@
+package com.example.alienprobe.java;
+
+// The most recent location fixes, oldest first, for placing a read where the device was when the
+// read was made. A time between two fixes gets the point on the line between them; a time after
+// the newest fix is carried forward along the last leg for at most MAX_EXTRAPOLATE_MS (fixes come
+// about once a second while moving, so that covers the wait for the next one). A time further than
+// MAX_GAP_MS from every fix gets no position at all. Any thread may add and look up.
+public class FixBuffer {
+    public static final int DEFAULT_CAPACITY = 64;
+    public static final long MAX_EXTRAPOLATE_MS = 2_000;
+    public static final long MAX_GAP_MS = 30_000;
+
+    public static final class Position {
+        private final double latitude;
+        private final double longitude;
+        private final float accuracy;
+        private final long fixAgeMs;
+
+        Position(double latitude, double longitude, float accuracy, long fixAgeMs) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+            this.fixAgeMs = fixAgeMs;
+        }
+
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        // Metres, the worse of the fixes used; NaN if they did not say
+        public float getAccuracy() { return accuracy; }
+        // How far in time the position is from the nearest real fix
+        public long getFixAgeMs() { return fixAgeMs; }
+    }
+
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final float[] accuracies;
+    // all guarded by this
+    private int start;
+    private int size;
+
+    public FixBuffer(int capacity) {
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        accuracies = new float[capacity];
+    }
+
+    public FixBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // A fix at timeMillis (wall clock); one no newer than the newest, e.g. a cached fix delivered late, is ignored
+    public synchronized void add(long timeMillis, double latitude, double longitude, float accuracy) {
+        if (size > 0 && timeMillis <= times[index(size - 1)]) {
+            return;
+        }
+        int slot;
+        if (size < times.length) {
+            slot = index(size);
+            size++;
+        } else {
+            // full: the oldest fix makes room
+            slot = start;
+            start = index(1);
+        }
+        times[slot] = timeMillis;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        accuracies[slot] = accuracy;
+    }
+
+    // Where the device was at timeMillis, or null if no fix is close enough in time
+    public synchronized Position at(long timeMillis) {
+        if (size == 0) {
+            return null;
+        }
+        int newest = index(size - 1);
+        if (timeMillis >= times[newest]) {
+            long ahead = timeMillis - times[newest];
+            if (ahead > MAX_GAP_MS) {
+                return null;
+            }
+            if (size == 1 || ahead == 0) {
+                return fix(newest, ahead);
+            }
+            return between(index(size - 2), newest, times[newest] + Math.min(ahead, MAX_EXTRAPOLATE_MS), ahead);
+        }
+        // newest first: reads are nearly always about the last second or two
+        for (int i = size - 2; i >= 0; i--) {
+            int earlier = index(i);
+            if (times[earlier] <= timeMillis) {
+                int later = index(i + 1);
+                long fixAge = Math.min(timeMillis - times[earlier], times[later] - timeMillis);
+                return fixAge > MAX_GAP_MS ? null : between(earlier, later, timeMillis, fixAge);
+            }
+        }
+        int oldest = index(0);
+        long before = times[oldest] - timeMillis;
+        return before > MAX_GAP_MS ? null : fix(oldest, before);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    private int index(int i) {
+        return (start + i) % times.length;
+    }
+
+    private Position fix(int slot, long fixAgeMs) {
+        return new Position(latitudes[slot], longitudes[slot], accuracies[slot], fixAgeMs);
+    }
+
+    // On the line through two fixes; past the later one when extrapolating. Straight lines in
+    // degrees are fine over the few metres between fixes.
+    private Position between(int earlier, int later, long timeMillis, long fixAgeMs) {
+        double fraction = (double) (timeMillis - times[earlier]) / (times[later] - times[earlier]);
+        return new Position(
+                latitudes[earlier] + (latitudes[later] - latitudes[earlier]) * fraction,
+                longitudes[earlier] + (longitudes[later] - longitudes[earlier]) * fraction,
+                Math.max(accuracies[earlier], accuracies[later]),
+                fixAgeMs);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.alienprobe.java;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// What the scan screen lists: one row per EPC seen this session, in the order they first
+// appeared, with how many times it has been read and when it was last read.
+// Rows are immutable, so a snapshot can be diffed on another thread while the next poll is
+// applied; an updated tag gets a new Row with the same id. Past maxRows, the tag that first
+// appeared longest ago is dropped.
+public class LiveTagList {
+    public static final int DEFAULT_MAX_ROWS = 5_000;
+
+    public static final class Row {
+        private final long id;
+        private final String epc;
+        private final long count;
+        private final long lastSeen;
+
+        Row(long id, String epc, long count, long lastSeen) {
+            this.id = id;
+            this.epc = epc;
+            this.count = count;
+            this.lastSeen = lastSeen;
+        }
+
+        // Unique for the life of the list, so it can serve as a stable RecyclerView id
+        public long getId() { return id; }
+        public String getEPC() { return epc; }
+        public long getCount() { return count; }
+        public long getLastSeen() { return lastSeen; }
+
+        public boolean sameContents(Row other) {
+            return id == other.id && count == other.count && lastSeen == other.lastSeen;
+        }
+    }
+
+    // EPC as a map key, without building its string
+    private static final class EpcKey {
+        final long hi;
+        final long lo;
+        final int digits;
+
+        EpcKey(TagRead read) {
+            this.hi = read.getEpcHi();
+            this.lo = read.getEpcLo();
+            this.digits = read.getEpcDigits();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof EpcKey)) return false;
+            EpcKey other = (EpcKey) o;
+            return hi == other.hi && lo == other.lo && digits == other.digits;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = hi * 0x9E3779B97F4A7C15L + lo + digits;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private final Map<EpcKey, Row> rows;
+    private long nextId;
+
+    public LiveTagList(int maxRows) {
+        this.rows = new LinkedHashMap<EpcKey, Row>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<EpcKey, Row> eldest) {
+                return size() > maxRows;
+            }
+        };
+    }
+
+    public LiveTagList() {
+        this(DEFAULT_MAX_ROWS);
+    }
+
+    // Counts one poll's reads, seen at nowMillis
+    public synchronized void add(List<RFIDTag> tags, long nowMillis) {
+        for (RFIDTag tag : tags) {
+            TagRead read = tag.getRead();
+            EpcKey key = new EpcKey(read);
+            // a reader's Count is reads since it last reported the tag; plain replies have none
+            int reads = Math.max(1, read.getCount());
+            Row row = rows.get(key);
+            if (row == null) {
+                rows.put(key, new Row(nextId++, read.getEPC(), reads, nowMillis));
+            } else {
+                rows.put(key, new Row(row.id, row.epc, row.count + reads, Math.max(row.lastSeen, nowMillis)));
+            }
+        }
+    }
+
+    // The rows as they stand, oldest first
+    public synchronized List<Row> snapshot() {
+        return new ArrayList<>(rows.values());
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    public synchronized void clear() {
+        rows.clear();
+    }
+}
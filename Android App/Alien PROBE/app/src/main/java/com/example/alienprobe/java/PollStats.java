@@ -0,0 +1,50 @@
+package com.example.alienprobe.java;
+
+import androidx.annotation.NonNull;
+
+// Size and parse cost of one reply to "t".
+// textBytes is what the same tags would have cost in the reader's default Text format,
+// so the difference shows what the compact custom format saves on the wire.
+public class PollStats {
+    private final int tagCount;
+    private final int replyBytes;
+    private final int textBytes;
+    private final long parseNanos;
+
+    public PollStats(int tagCount, int replyBytes, int textBytes, long parseNanos) {
+        this.tagCount = tagCount;
+        this.replyBytes = replyBytes;
+        this.textBytes = textBytes;
+        this.parseNanos = parseNanos;
+    }
+
+    // Length of the Text-format line the reader would have sent for this read:
+    // Tag:<epc in groups of 4>, Disc:<date time>, Last:<date time>, Count:<n>, Ant:<n>, Proto:2\r\n
+    public static int textLineBytes(TagRead read) {
+        int digits = read.getEpcDigits();
+        int epc = digits + Math.max(0, (digits + 3) / 4 - 1);
+        return 4 + epc + 26 + 26 + 8 + digitCount(read.getCount()) + 6 + digitCount(Math.max(0, read.getAntenna())) + 9 + 2;
+    }
+
+    private static int digitCount(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    public int getTagCount() { return tagCount; }
+    public int getReplyBytes() { return replyBytes; }
+    public int getTextBytes() { return textBytes; }
+    public int getBytesSaved() { return Math.max(0, textBytes - replyBytes); }
+    public long getParseNanos() { return parseNanos; }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return tagCount + " tags, " + replyBytes + " B (" + getBytesSaved() + " B saved), parsed in "
+                + (parseNanos / 1000) + " us";
+    }
+}
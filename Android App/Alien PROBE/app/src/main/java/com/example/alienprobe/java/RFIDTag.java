@@ -10,8 +10,14 @@ import androidx.annotation.NonNull;
 public class RFIDTag {
     private String epc;
     private Vehicle vehicle;
+    private final TagRead read;
     public RFIDTag(String epc) {
         this.epc = epc;
+        this.read = TagRead.ofEpc(epc);
+    }
+    public RFIDTag(TagRead read) {
+        this.epc = read.getEPC();
+        this.read = read;
     }
     @NonNull
     @Override
@@ -26,5 +32,7 @@ public class RFIDTag {
         return this.epc;
     }
     public Vehicle getVehicle(){ return this.vehicle; }
+    // Antenna, RSSI, count and timestamps as reported by the reader
+    public TagRead getRead(){ return this.read; }
 
 }
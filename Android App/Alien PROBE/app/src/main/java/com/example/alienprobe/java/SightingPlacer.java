@@ -0,0 +1,109 @@
+package com.example.alienprobe.java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Places sightings by their read time, holding back the ones no fix can place yet: reads before
+// the first fix after the scan screen starts, through a cold GPS start, or in a gap between fixes.
+// A held sighting is placed by the first fix that comes within FixBuffer.MAX_GAP_MS of it. It is
+// given up once no fix still could place it, or when more than maxPending are waiting.
+// The Sink is called outside the placer's lock, on the thread that offered or retried.
+public class SightingPlacer<T> {
+    public interface Sink<T> {
+        void placed(T sighting, FixBuffer.Position position);
+        // no fix came close enough in time
+        void dropped(T sighting);
+    }
+
+    private static final class Held<T> {
+        final T sighting;
+        final long timeMillis;
+
+        Held(T sighting, long timeMillis) {
+            this.sighting = sighting;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    private final FixBuffer fixes;
+    private final int maxPending;
+    private final Sink<T> sink;
+    // oldest first, guarded by this
+    private final ArrayDeque<Held<T>> pending = new ArrayDeque<>();
+
+    public SightingPlacer(FixBuffer fixes, int maxPending, Sink<T> sink) {
+        this.fixes = fixes;
+        this.maxPending = maxPending;
+        this.sink = sink;
+    }
+
+    // Places the sighting now if a fix is close enough to timeMillis, otherwise holds it
+    public void offer(T sighting, long timeMillis) {
+        FixBuffer.Position position = fixes.at(timeMillis);
+        if (position != null) {
+            sink.placed(sighting, position);
+            return;
+        }
+        List<T> dropped = new ArrayList<>();
+        synchronized (this) {
+            pending.addLast(new Held<>(sighting, timeMillis));
+            while (pending.size() > maxPending) {
+                dropped.add(pending.removeFirst().sighting);
+            }
+            // nothing newer than this read can place one this far before it
+            while (!pending.isEmpty() && timeMillis - pending.peekFirst().timeMillis > FixBuffer.MAX_GAP_MS) {
+                dropped.add(pending.removeFirst().sighting);
+            }
+        }
+        for (T gone : dropped) {
+            sink.dropped(gone);
+        }
+    }
+
+    // Tries the held sightings again after new fixes went into the buffer; nowMillis is wall clock
+    public void retry(long nowMillis) {
+        List<Held<T>> placed = new ArrayList<>();
+        List<FixBuffer.Position> positions = new ArrayList<>();
+        List<T> dropped = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Held<T>> it = pending.iterator(); it.hasNext(); ) {
+                Held<T> held = it.next();
+                FixBuffer.Position position = fixes.at(held.timeMillis);
+                if (position != null) {
+                    placed.add(held);
+                    positions.add(position);
+                    it.remove();
+                } else if (nowMillis - held.timeMillis > FixBuffer.MAX_GAP_MS) {
+                    dropped.add(held.sighting);
+                    it.remove();
+                }
+            }
+        }
+        for (int i = 0; i < placed.size(); i++) {
+            sink.placed(placed.get(i).sighting, positions.get(i));
+        }
+        for (T sighting : dropped) {
+            sink.dropped(sighting);
+        }
+    }
+
+    // Gives up every held sighting, e.g. when the scan screen goes away
+    public void dropAll() {
+        List<T> dropped = new ArrayList<>();
+        synchronized (this) {
+            for (Held<T> held : pending) {
+                dropped.add(held.sighting);
+            }
+            pending.clear();
+        }
+        for (T sighting : dropped) {
+            sink.dropped(sighting);
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.alienprobe.java;
+
+import androidx.annotation.NonNull;
+
+// One tag report from the reader, decoded by TagListParser.
+// The EPC is kept as a right-aligned 128-bit number (two longs plus its length in hex digits)
+// so reads can be compared and hashed without building strings.
+public final class TagRead {
+    public static final int MAX_EPC_DIGITS = 32;
+    public static final int NO_ANTENNA = -1;
+    public static final long NO_TIME = 0;
+
+    private final long epcHi;
+    private final long epcLo;
+    private final int epcDigits;
+    private final int antenna;
+    private final float rssi;
+    private final int count;
+    private final long firstSeen;
+    private final long lastSeen;
+
+    public TagRead(long epcHi, long epcLo, int epcDigits, int antenna, float rssi, int count, long firstSeen, long lastSeen) {
+        this.epcHi = epcHi;
+        this.epcLo = epcLo;
+        this.epcDigits = epcDigits;
+        this.antenna = antenna;
+        this.rssi = rssi;
+        this.count = count;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+    }
+
+    // A read that only carries an EPC, e.g. from the older raw-line code paths
+    public static TagRead ofEpc(String epc) {
+        long hi = 0;
+        long lo = 0;
+        int digits = 0;
+        for (int i = 0; i < epc.length() && digits < MAX_EPC_DIGITS; i++) {
+            int nibble = Character.digit(epc.charAt(i), 16);
+            if (nibble < 0) {
+                continue;
+            }
+            hi = (hi << 4) | (lo >>> 60);
+            lo = (lo << 4) | nibble;
+            digits++;
+        }
+        return new TagRead(hi, lo, digits, NO_ANTENNA, Float.NaN, 1, NO_TIME, NO_TIME);
+    }
+
+    public long getEpcHi() { return epcHi; }
+    public long getEpcLo() { return epcLo; }
+    public int getEpcDigits() { return epcDigits; }
+    public int getAntenna() { return antenna; }
+    // NaN when the reply format did not include signal strength
+    public float getRssi() { return rssi; }
+    public boolean hasRssi() { return !Float.isNaN(rssi); }
+    public int getCount() { return count; }
+    // Epoch millis, or NO_TIME when the reply format did not include it
+    public long getFirstSeen() { return firstSeen; }
+    public long getLastSeen() { return lastSeen; }
+
+    // Uppercase hex EPC without spaces, the same form the reader uses for %k
+    public String getEPC() {
+        char[] out = new char[epcDigits];
+        for (int i = 0; i < epcDigits; i++) {
+            int shift = (epcDigits - 1 - i) * 4;
+            long nibble = shift >= 64 ? epcHi >>> (shift - 64) : epcLo >>> shift;
+            out[i] = Character.toUpperCase(Character.forDigit((int) (nibble & 0xF), 16));
+        }
+        return new String(out);
+    }
+
+    public boolean sameEpc(TagRead other) {
+        return epcHi == other.epcHi && epcLo == other.epcLo && epcDigits == other.epcDigits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TagRead)) return false;
+        TagRead other = (TagRead) o;
+        return sameEpc(other)
+                && antenna == other.antenna
+                && Float.compare(rssi, other.rssi) == 0
+                && count == other.count
+                && firstSeen == other.firstSeen
+                && lastSeen == other.lastSeen;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = epcHi * 31 + epcLo;
+        h = h * 31 + epcDigits;
+        h = h * 31 + antenna;
+        h = h * 31 + Float.floatToIntBits(rssi);
+        h = h * 31 + count;
+        h = h * 31 + firstSeen;
+        h = h * 31 + lastSeen;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TagRead{" +
+                "epc=" + getEPC() +
+                ", antenna=" + antenna +
+                ", rssi=" + rssi +
+                ", count=" + count +
+                ", firstSeen=" + firstSeen +
+                ", lastSeen=" + lastSeen +
+                '}';
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.alienprobe.java;
+
+import java.util.List;
+
+// Where a scan's reads come from (see ScanPipeline). Every call blocks on the reader, so they are
+// made from a background thread, which is interrupted when the scan is cancelled.
+public interface TagSource {
+    // Before the first poll of a scan; if it throws, it is reported and retried like a failed poll
+    default void open() throws Exception {}
+
+    // The next reads, as soon as the reader has them; may be empty
+    List<RFIDTag> poll() throws Exception;
+
+    // After the last poll, even when the scan was cancelled or open() never succeeded
+    default void close() {}
+}
@@ -32,6 +32,11 @@ public class Vehicle {
                 '}';
     }
 
+    // Short label for lists and the database, e.g. "Red Ford Focus (ABC123)"
+    public String getDescription() {
+        return color + " " + make + " " + model + " (" + plate + ")";
+    }
+
     // Constructor
     public Vehicle(long id, String plate, String make, String model, String color) {
         this.id = id;
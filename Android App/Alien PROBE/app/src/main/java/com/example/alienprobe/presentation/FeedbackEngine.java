@@ -0,0 +1,89 @@
+package com.example.alienprobe.presentation;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.os.SystemClock;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+
+import com.example.alienprobe.R;
+
+import java.util.Arrays;
+
+// Sound and vibration when a scan finds something. The alert sample is decoded once into a
+// SoundPool when the engine is created, so a cue is a play() on an already loaded sample rather
+// than a new MediaPlayer. Each cue has its own minimum gap: a burst of new tags in one poll is
+// one beep, not a pile of overlapping ones. Any thread may call cue().
+public class FeedbackEngine {
+    public enum Cue {
+        // a tag not seen in the deduplication window
+        NEW_TAG(1.0f, 150),
+        // a permit tag the server has no vehicle for: the same sample played lower, and a double buzz
+        FLAGGED(0.6f, 600);
+
+        final float rate;
+        final long minGapMs;
+
+        Cue(float rate, long minGapMs) {
+            this.rate = rate;
+            this.minGapMs = minGapMs;
+        }
+    }
+
+    private static final long[] FLAGGED_PATTERN = {0, 80, 60, 80};
+
+    private static FeedbackEngine instance;
+
+    private final SoundPool soundPool;
+    private final int soundId;
+    private final Vibrator vibrator;
+    private final long[] lastPlayed = new long[Cue.values().length];
+    private volatile boolean loaded;
+
+    public static synchronized FeedbackEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new FeedbackEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private FeedbackEngine(Context context) {
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        soundPool = new SoundPool.Builder().setMaxStreams(2).setAudioAttributes(attributes).build();
+        // decoded on SoundPool's own thread; cues before it finishes are silent
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> loaded = status == 0);
+        soundId = soundPool.load(context, R.raw.alien_blaster, 1);
+        vibrator = context.getSystemService(Vibrator.class);
+        Arrays.fill(lastPlayed, Long.MIN_VALUE / 2);
+    }
+
+    // Plays the cue unless the same cue played less than its minimum gap ago
+    public void cue(Cue cue) {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (lastPlayed) {
+            if (now - lastPlayed[cue.ordinal()] < cue.minGapMs) {
+                return;
+            }
+            lastPlayed[cue.ordinal()] = now;
+        }
+        if (loaded) {
+            soundPool.play(soundId, 1f, 1f, cue == Cue.FLAGGED ? 2 : 1, 0, cue.rate);
+        }
+        vibrate(cue);
+    }
+
+    private void vibrate(Cue cue) {
+        if (vibrator == null || !vibrator.hasVibrator()) {
+            return;
+        }
+        if (cue == Cue.FLAGGED) {
+            vibrator.vibrate(VibrationEffect.createWaveform(FLAGGED_PATTERN, -1));
+        } else {
+            vibrator.vibrate(VibrationEffect.createPredefined(VibrationEffect.EFFECT_TICK));
+        }
+    }
+}
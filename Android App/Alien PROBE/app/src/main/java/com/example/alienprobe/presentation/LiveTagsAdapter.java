@@ -0,0 +1,96 @@
+package com.example.alienprobe.presentation;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.alienprobe.R;
+import com.example.alienprobe.java.LiveTagList;
+
+import java.util.List;
+
+// The scan screen's live list (see LiveTagList). Each poll submits a snapshot; DiffUtil works out
+// off the main thread which rows are new or changed, so only those are bound. The "seen ... ago"
+// text goes stale between polls, so refreshAges() rebinds just that text on the rows on screen.
+public class LiveTagsAdapter extends ListAdapter<LiveTagList.Row, LiveTagsAdapter.ViewHolder> {
+    private static final Object AGE_PAYLOAD = new Object();
+
+    private static final DiffUtil.ItemCallback<LiveTagList.Row> DIFF = new DiffUtil.ItemCallback<LiveTagList.Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull LiveTagList.Row oldItem, @NonNull LiveTagList.Row newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull LiveTagList.Row oldItem, @NonNull LiveTagList.Row newItem) {
+            return oldItem.sameContents(newItem);
+        }
+    };
+
+    private final LayoutInflater inflater;
+
+    public LiveTagsAdapter(Context context) {
+        super(DIFF);
+        this.inflater = LayoutInflater.from(context);
+        setHasStableIds(true);
+    }
+
+    // Updates the last-seen age on every row without rebinding the rest
+    public void refreshAges() {
+        notifyItemRangeChanged(0, getItemCount(), AGE_PAYLOAD);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = inflater.inflate(R.layout.live_tag_item, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        LiveTagList.Row row = getItem(position);
+        holder.epcTextView.setText("EPC: " + row.getEPC());
+        holder.countTextView.setText(row.getCount() == 1 ? "1 read" : row.getCount() + " reads");
+        bindAge(holder, row);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        bindAge(holder, getItem(position));
+    }
+
+    private void bindAge(ViewHolder holder, LiveTagList.Row row) {
+        holder.ageTextView.setText(DateUtils.getRelativeTimeSpanString(row.getLastSeen(),
+                System.currentTimeMillis(), DateUtils.SECOND_IN_MILLIS));
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView epcTextView;
+        TextView countTextView;
+        TextView ageTextView;
+        ViewHolder(View itemView) {
+            super(itemView);
+            epcTextView = itemView.findViewById(R.id.liveEpcView);
+            countTextView = itemView.findViewById(R.id.liveCountView);
+            ageTextView = itemView.findViewById(R.id.liveAgeView);
+        }
+    }
+}
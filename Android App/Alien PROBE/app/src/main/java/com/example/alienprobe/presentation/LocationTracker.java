@@ -0,0 +1,142 @@
+package com.example.alienprobe.presentation;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.example.alienprobe.java.FixBuffer;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+// Continuous location for the scan screen. While started it is subscribed to fused location
+// updates and keeps the recent fixes in a FixBuffer, so a read is placed where the device was at
+// the moment of the read instead of wherever the last one-off getLastLocation() landed. The rate
+// follows the speed: a fix a second at high accuracy while moving, where a second is a car length
+// or two, and one every STATIONARY_INTERVAL_MS on balanced power while standing still.
+// start(), stop() and setOnFixes() are for the main thread; positionAt() for any thread.
+public class LocationTracker {
+    private static final String TAG = "LocationTracker";
+    private static final long MOVING_INTERVAL_MS = 1_000;
+    private static final long STATIONARY_INTERVAL_MS = 5_000;
+    // m/s, a brisk walk
+    private static final float MOVING_SPEED = 1.5f;
+
+    private final Context context;
+    private final FixBuffer fixes = new FixBuffer();
+    // built on the first start(), not with the screen
+    private FusedLocationProviderClient client;
+    // the current request's interval, 0 when not subscribed
+    private long intervalMs;
+    // told on the main thread each time fixes went into the buffer
+    private Runnable onFixes;
+
+    private final LocationCallback callback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult result) {
+            for (Location location : result.getLocations()) {
+                add(location);
+            }
+            fixesAdded();
+            Location last = result.getLastLocation();
+            if (last != null && intervalMs != 0) {
+                // no speed reported counts as moving; better a fix too many than a read misplaced
+                boolean moving = !last.hasSpeed() || last.getSpeed() >= MOVING_SPEED;
+                long wanted = moving ? MOVING_INTERVAL_MS : STATIONARY_INTERVAL_MS;
+                if (wanted != intervalMs) {
+                    request(wanted);
+                }
+            }
+        }
+    };
+
+    public LocationTracker(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    // Subscribes, if location permission is granted; call again once it is
+    public void start() {
+        if (intervalMs != 0 || ContextCompat.checkSelfPermission(context,
+                Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        if (client == null) {
+            client = LocationServices.getFusedLocationProviderClient(context);
+        }
+        if (!request(MOVING_INTERVAL_MS)) {
+            return;
+        }
+        // something to place the first reads with while the first update is on its way
+        try {
+            client.getLastLocation().addOnSuccessListener(location -> {
+                if (location != null) {
+                    add(location);
+                    fixesAdded();
+                }
+            });
+        } catch (SecurityException e) {
+            Log.d(TAG, "Last location: " + e.getMessage());
+        }
+    }
+
+    public void stop() {
+        if (intervalMs != 0) {
+            client.removeLocationUpdates(callback);
+            intervalMs = 0;
+        }
+    }
+
+    // Where the device was at timeMillis (wall clock), or null if no fix is close enough in time
+    public FixBuffer.Position positionAt(long timeMillis) {
+        return fixes.at(timeMillis);
+    }
+
+    // The buffer the fixes go into, for placing reads against it directly
+    public FixBuffer getFixes() {
+        return fixes;
+    }
+
+    public void setOnFixes(Runnable onFixes) {
+        this.onFixes = onFixes;
+    }
+
+    private void fixesAdded() {
+        if (onFixes != null) {
+            onFixes.run();
+        }
+    }
+
+    private void add(Location location) {
+        fixes.add(location.getTime(), location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : Float.NaN);
+    }
+
+    // Replaces any earlier request, which was made with the same callback
+    private boolean request(long interval) {
+        int priority = interval == MOVING_INTERVAL_MS
+                ? Priority.PRIORITY_HIGH_ACCURACY : Priority.PRIORITY_BALANCED_POWER_ACCURACY;
+        LocationRequest request = new LocationRequest.Builder(priority, interval)
+                .setMinUpdateIntervalMillis(interval / 2)
+                .build();
+        try {
+            client.requestLocationUpdates(request, callback, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            // permission taken away while the screen was open
+            Log.d(TAG, "Location updates: " + e.getMessage());
+            intervalMs = 0;
+            return false;
+        }
+        intervalMs = interval;
+        Log.d(TAG, "Location updates every " + interval + " ms");
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.alienprobe.presentation
+
+import com.example.alienprobe.java.EpcDeduplicator
+import com.example.alienprobe.java.LiveTagList
+import com.example.alienprobe.java.RFIDTag
+import com.example.alienprobe.java.TagSource
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.buffer
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.runInterruptible
+import kotlinx.coroutines.withContext
+
+// The scan loop as a Flow: reader -> (parsed reads) -> dedup -> enrich/persist -> UI.
+// Polls run back to back on an IO thread, so the reader's own response time sets the pace. Each
+// stage hands on through a small buffer; if a later stage falls behind the buffer fills and the
+// poll loop suspends instead of piling up reads. Cancelling the collector (the toggle going off, or
+// the screen leaving STARTED) interrupts the poll in progress and closes the source.
+class ScanPipeline(
+    private val liveTags: LiveTagList,
+    private val deduplicator: EpcDeduplicator,
+    // called on a background thread for each tag the deduplicator lets through
+    private val persist: (RFIDTag, Long) -> Unit,
+    private val onPollFailed: (Exception) -> Unit = {},
+    private val clock: () -> Long = System::currentTimeMillis,
+) {
+    companion object {
+        // polls that may wait at each hand-off before the reader is left alone
+        const val POLL_BUFFER = 4
+        private const val FIRST_RETRY_MS = 250L
+        private const val MAX_RETRY_MS = 5_000L
+    }
+
+    // One poll's worth of results, for the UI
+    class Update(
+        val rows: List<LiveTagList.Row>,
+        val tagCount: Int,
+        // first sightings (by the deduplicator's rules) in this poll
+        val newTags: List<RFIDTag>,
+    )
+
+    // Runs while collected; collect on the main thread, everything else is moved off it
+    fun updates(source: TagSource): Flow<Update> = reads(source)
+        .buffer(POLL_BUFFER)
+        .map { tags -> process(tags) }
+        .flowOn(Dispatchers.Default)
+        // sizes the hand-off to the collector too, instead of flowOn's default of 64
+        .buffer(POLL_BUFFER)
+
+    // A single poll outside the scan loop
+    suspend fun pollOnce(poll: () -> List<RFIDTag>): Update {
+        val tags = runInterruptible(Dispatchers.IO) { poll() }
+        return withContext(Dispatchers.Default) { process(tags) }
+    }
+
+    private fun reads(source: TagSource): Flow<List<RFIDTag>> = flow {
+        try {
+            var opened = false
+            var failures = 0
+            while (true) {
+                val tags = try {
+                    if (!opened) {
+                        runInterruptible { source.open() }
+                        opened = true
+                    }
+                    runInterruptible { source.poll() }
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    // reader unreachable, busy or refusing to stream: back off rather than spin on the error
+                    onPollFailed(e)
+                    failures++
+                    delay(minOf(MAX_RETRY_MS, FIRST_RETRY_MS shl minOf(failures - 1, 5)))
+                    continue
+                }
+                failures = 0
+                emit(tags)
+            }
+        } finally {
+            withContext(NonCancellable) { source.close() }
+        }
+    }.flowOn(Dispatchers.IO)
+
+    private fun process(tags: List<RFIDTag>): Update {
+        val now = clock()
+        liveTags.add(tags, now)
+        val newTags = tags.filter { deduplicator.isNew(it.read, now) }
+        for (tag in newTags) {
+            persist(tag, now)
+        }
+        return Update(liveTags.snapshot(), tags.size, newTags)
+    }
+}
@@ -3,62 +3,136 @@ package com.example.alienprobe.presentation
 import android.Manifest
 import android.content.Intent
 import android.content.pm.PackageManager
-import android.database.sqlite.SQLiteConstraintException
-import android.icu.text.SimpleDateFormat
-import android.icu.util.Calendar
-import android.location.Location
-import android.media.MediaPlayer
 import android.net.Uri
 import android.os.Bundle
-import android.os.Handler
-import android.os.Looper
 import android.provider.Settings
 import android.util.Log
 import android.widget.Button
-import android.widget.LinearLayout
 import android.widget.TextView
 import android.widget.Toast
 import android.widget.ToggleButton
+import android.view.View
 import androidx.appcompat.app.AppCompatActivity
 import androidx.core.app.ActivityCompat
 import androidx.core.content.ContextCompat
 import androidx.appcompat.app.AlertDialog
-import androidx.lifecycle.LiveData
-import androidx.lifecycle.Observer
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.lifecycleScope
+import androidx.lifecycle.repeatOnLifecycle
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
 import com.example.alienprobe.java.AlienScanner
-import com.example.alienprobe.database.DataBaseHelper
+import com.example.alienprobe.java.EpcDeduplicator
+import com.example.alienprobe.java.LiveTagList
 import com.example.alienprobe.R
 import com.example.alienprobe.java.RFIDTag
+import com.example.alienprobe.java.FixBuffer
+import com.example.alienprobe.java.SightingPlacer
+import com.example.alienprobe.java.TagRead
 import com.example.alienprobe.database.TagModel
-import com.example.alienprobe.java.Vehicle
-import com.example.alienprobe.api.fetchVehicles
-import com.google.android.gms.location.FusedLocationProviderClient
-import com.google.android.gms.location.LocationServices
-import java.util.Locale
+import com.example.alienprobe.database.TagWriter
+import com.example.alienprobe.api.RetrofitClient
+import com.example.alienprobe.api.SightingUploader
+import com.example.alienprobe.api.VehicleResolver
+import com.alien.enterpriseRFID.reader.AlienReaderException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
-var tagList: MutableList<RFIDTag> = mutableListOf()
+// Every tag read this session with its read count, for the live list
+val liveTags = LiveTagList()
+// Tags seen again within 10 minutes of being listed are not listed again
+val tagDeduplicator = EpcDeduplicator(50_000, 10 * 60 * 1000L)
 
 class ScannerActivity : AppCompatActivity() {
-    companion object { private const val LOCATION_PERMISSION_REQUEST_CODE = 1 }
+    companion object {
+        private const val LOCATION_PERMISSION_REQUEST_CODE = 1
+        // a reader clock further than this from ours is not trusted to place a read
+        private const val READER_CLOCK_SKEW_MS = 5_000L
+        // reads waiting for a fix to place them, e.g. through a cold GPS start
+        private const val MAX_UNPLACED = 1_000
+    }
 
-    private lateinit var fusedLocationClient: FusedLocationProviderClient
-    private var lastLocation: Location? = null
+    private lateinit var reader: AlienScanner
+    private lateinit var tagWriter: TagWriter
+    private lateinit var feedback: FeedbackEngine
+    // null until RetrofitClient.BASE_URL is set and the resolver has loaded its cache; read by the pipeline
+    @Volatile private var vehicleResolver: VehicleResolver? = null
+    // subscribed while the screen is started; the pipeline looks reads up in it
+    private lateinit var locationTracker: LocationTracker
+    // reads with the poll time they came back at, held until a fix is close enough to place them
+    private lateinit var placer: SightingPlacer<Pair<RFIDTag, Long>>
+    private val pipeline = ScanPipeline(liveTags, tagDeduplicator, ::addTagToDB,
+        onPollFailed = { e -> Log.d("Scanner", "Poll failed: ${e.message}") })
+    private var scanJob: Job? = null
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         setContentView(R.layout.scanner)
 
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this)
+        reader = AlienScanner(this)
+        tagWriter = TagWriter.getInstance(this)
+        // loads the alert sample now, so the first new tag is not kept waiting for it
+        feedback = FeedbackEngine.getInstance(this)
+        locationTracker = LocationTracker(this)
+        placer = SightingPlacer(locationTracker.fixes, MAX_UNPLACED, object : SightingPlacer.Sink<Pair<RFIDTag, Long>> {
+            override fun placed(sighting: Pair<RFIDTag, Long>, position: FixBuffer.Position) {
+                save(sighting.first, sighting.second, position)
+            }
+            override fun dropped(sighting: Pair<RFIDTag, Long>) {
+                val tag = sighting.first
+                Log.d("Insertion", "ERROR: ${tag.getEPC()} not added, no location near the read.")
+                // not stored, so the next read of it is new again
+                tagDeduplicator.forget(tag.read)
+            }
+        })
+        locationTracker.setOnFixes { placer.retry(System.currentTimeMillis()) }
 
         checkAndRequestLocationPermissions()
 
         setupUI()
+        // the screen is usable at once; the reader library and session, the vehicle cache on disk
+        // and Retrofit are built in the background, and a poll started before then waits for them
+        lifecycleScope.launch {
+            withContext(Dispatchers.IO) {
+                reader.preload()
+                if (RetrofitClient.isConfigured()) {
+                    vehicleResolver = VehicleResolver.getInstance(this@ScannerActivity)
+                    // uploads whatever is stored, and each new batch as soon as it is written
+                    val uploader = SightingUploader.getInstance(this@ScannerActivity)
+                    tagWriter.setOnBatchWritten { uploader.requestSync() }
+                }
+            }
+            reportFullyDrawn()
+        }
+    }
+    override fun onStart() {
+        super.onStart()
+        // nothing needs a fix before the first tag, so the subscription waits for the first frame
+        window.decorView.post {
+            if (lifecycle.currentState.isAtLeast(Lifecycle.State.STARTED)) {
+                locationTracker.start()
+            }
+        }
+    }
+    override fun onStop() {
+        locationTracker.stop()
+        super.onStop()
+    }
+    override fun onDestroy() {
+        placer.dropAll()
+        super.onDestroy()
     }
     private fun setupUI() {
-        getLastLocation()
-        //make sure to initialize this here or else scannerActivity will crash
-        val reader = AlienScanner(this)
-        val linearLayout = findViewById<LinearLayout>(R.id.linearLayout)
+        val adapter = LiveTagsAdapter(this)
+        val recyclerView = findViewById<RecyclerView>(R.id.liveTagsRecyclerView)
+        recyclerView.layoutManager = LinearLayoutManager(this)
+        recyclerView.adapter = adapter
+        // rows change in place every poll; skip the change animation and its extra layout passes
+        recyclerView.itemAnimator?.changeDuration = 0
+        val noTagsText = findViewById<TextView>(R.id.noTagsText)
+        val pollStatsText = findViewById<TextView>(R.id.pollStatsText)
         //back button
         val buttonClick = findViewById<Button>(R.id.btnViewScanToMain)
         buttonClick.setOnClickListener {
@@ -74,149 +148,93 @@ class ScannerActivity : AppCompatActivity() {
         //clear button
         val clearClick = findViewById<Button>(R.id.btnScannerClear)
         clearClick.setOnClickListener {
-            tagList.clear()
-            linearLayout.removeAllViews()
+            liveTags.clear()
+            tagDeduplicator.clear()
+            showTags(adapter, liveTags.snapshot(), noTagsText)
         }
 
+        val show = { update: ScanPipeline.Update ->
+            showTags(adapter, update.rows, noTagsText)
+            showPollStats(pollStatsText)
+        }
         val toggleOnOff = findViewById<ToggleButton>(R.id.toggleScanner)
         toggleOnOff.setOnCheckedChangeListener { _, isChecked ->
+            scanJob?.cancel()
+            scanJob = null
             if (isChecked) {
-                // Start background thread when toggle is ON
-                Thread {
-                    while (toggleOnOff.isChecked) {
-                        getLastLocation()
-                        playSound()
-                        val tempTagList: MutableList<RFIDTag> = reader.GetTagList()
-                        // Use a handler to perform UI operations on the main thread
-                        Thread.sleep(1250)
-                        Handler(Looper.getMainLooper()).post {
-                            checkForDuplicateTags(linearLayout, tempTagList)
-                            addTagsToView(linearLayout)
-                        }
+                // runs while the screen is started; leaving it cancels the poll in flight and
+                // stops the stream, coming back starts a fresh scan
+                scanJob = lifecycleScope.launch {
+                    repeatOnLifecycle(Lifecycle.State.STARTED) {
+                        pipeline.updates(reader.asTagSource()).collect { show(it) }
                     }
-                }.start()
-            } else {
-                // Handle what to do when toggle is OFF if needed
+                }
             }
         }
         // getList button
         val getList = findViewById<Button>(R.id.getTagListButton)
         getList.setOnClickListener {
-            getLastLocation()
-            playSound()
-            val tempTagList: MutableList<RFIDTag> = reader.GetTagList()
-            Thread.sleep(500)
-            checkForDuplicateTags(linearLayout,tempTagList)
-            addTagsToView(linearLayout)
-        }
-    }
-    private fun addTagToDB(tag: RFIDTag) {
-        // thread this to improve performance
-        val currentTime = getCurrentTime()
-        val dataBaseHelper: DataBaseHelper =
-            DataBaseHelper(this)
-
-        /* Uncomment this when needed to use api service for tag info
-        val epc = tag.epc.takeLast(5).toIntOrNull()
-        val vehicles: LiveData<List<Vehicle>> = fetchVehicles(epc)
-        //
-        var firstVehicle: Vehicle? = null
-        //
-        vehicles.observe(this, Observer { vehicles ->
-            if (!vehicles.isNullOrEmpty()) {
-                firstVehicle = vehicles.first()
-            }
-        })
-        */
-
-        //temp car name
-        var firstVehicle = "Lightning McQueen"
-
-        try {
-            val long: Double = lastLocation!!.longitude
-            val lat: Double = lastLocation!!.latitude
-            val time: String = currentTime
-            val tagModel: TagModel =
-                TagModel(
-                    -1,
-                    "${tag.getEPC()}",
-                    long,
-                    lat,
-                    time,
-                    firstVehicle.toString()
-                )
-            val success = dataBaseHelper.addOne(tagModel)
-            if (success) {
-                Log.d("Insertion", "new tag: ${tag.getEPC()} added.")
-            }
-        } catch (e: SQLiteConstraintException) {
-            // Handle the duplicate entry case, maybe log it or inform the user
-            Log.d("Insertion", "Duplicate EPC: ${tag.getEPC()} not added.")
-        } catch (e: Exception) {
-            Log.d("Insertion", "ERROR: ${tag.getEPC()} not added.")
-        }
-    }
-    private fun addTagsToView(linearLayout: LinearLayout) {
-        if (tagList.isNotEmpty()) {
-            for (tag in tagList) {
-
-                //Add Tag Data to Scroll View
-                val textView = TextView(this).apply {
-                    text = "EPC: ${tag.getEPC()}"
+            lifecycleScope.launch {
+                try {
+                    show(pipeline.pollOnce { reader.pollTags() })
+                } catch (e: AlienReaderException) {
+                    Log.d("Scanner", "Poll failed: ${e.message}")
                 }
-                linearLayout.addView(textView)
-                addTagToDB(tag)
-            }
-        } else {
-            val textView = TextView(this).apply {
-                text = "No tags found."
             }
-            linearLayout.addView(textView)
         }
     }
-    private fun checkForDuplicateTags(linearLayout: LinearLayout, tempTagList: MutableList<RFIDTag>) {
-        for (tempTag in tempTagList) {
-            if (!tagList.any { it.epc == tempTag.epc }) {
-                tagList.add(tempTag)
-            }
-        }
-        linearLayout.removeAllViews()
-    }
-    private fun playSound() {
-        val mediaPlayer = MediaPlayer.create(this, R.raw.alien_blaster)
-        mediaPlayer.start()
-        mediaPlayer.setOnCompletionListener {
-            it.release()
-        }
+    private fun showPollStats(pollStatsText: TextView) {
+        val stats = reader.lastPollStats ?: return
+        pollStatsText.text = stats.toString()
     }
-    private fun getCurrentTime(): String {
-        val currentTime = Calendar.getInstance()
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault())
-        return dateFormat.format(currentTime.time)
+    // On the pipeline's thread; a read no fix can place yet waits in the placer for one
+    private fun addTagToDB(tag: RFIDTag, currentTime: Long) {
+        placer.offer(tag to currentTime, readTime(tag, currentTime))
     }
-    private fun getLastLocation() {
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-            // Permission check failed. Exit the method.
+    // On the pipeline's thread, or the main thread for a read placed by a later fix; written in
+    // batches on TagWriter's thread
+    private fun save(tag: RFIDTag, currentTime: Long, position: FixBuffer.Position) {
+        // straight from the calling thread, so the beep does not wait for the UI
+        feedback.cue(FeedbackEngine.Cue.NEW_TAG)
+        val enqueue = { vehicle: String? ->
+            tagWriter.enqueue(TagModel(tag.read, position.longitude, position.latitude, currentTime, vehicle))
+        }
+        // Look the car up by the permit number in the EPC; cached answers come back at once
+        val permitId = VehicleResolver.permitIdForEpc(tag.getEPC())
+        val resolver = vehicleResolver
+        if (resolver == null || permitId == null) {
+            enqueue(null)
             return
         }
-        fusedLocationClient.lastLocation.addOnSuccessListener { location: Location? ->
-            // Got last known location. In some rare situations, this can be null.
-            if (location != null) {
-                lastLocation = location // Update the lastLocation variable with the new location
-                // Optionally, use the location data immediately for some task
-                // For example, updating the UI or logging
-                val latitude = location.latitude
-                val longitude = location.longitude
-                Log.d("LocationUpdate", "New location received: Lat $latitude, Lon $longitude")
-            } else {
-                // Handle the case where location is null
-                Log.d("LocationUpdate", "No location received")
+        resolver.resolve(permitId).whenComplete { vehicles, error ->
+            if (error != null) {
+                Log.d("VehicleLookup", "Permit $permitId: ${error.message}")
+            } else if (vehicles.isEmpty()) {
+                // a permit tag with no vehicle on file
+                feedback.cue(FeedbackEngine.Cue.FLAGGED)
             }
+            enqueue(vehicles?.firstOrNull()?.description)
+        }
+    }
+    private fun showTags(adapter: LiveTagsAdapter, rows: List<LiveTagList.Row>, noTagsText: TextView) {
+        // diffed off the main thread; only new and changed rows are bound
+        adapter.submitList(rows)
+        adapter.refreshAges()
+        noTagsText.visibility = if (rows.isEmpty()) View.VISIBLE else View.GONE
+    }
+    // When the reader saw the tag, if the reply says and the reader's clock agrees with ours;
+    // otherwise when the poll came back
+    private fun readTime(tag: RFIDTag, currentTime: Long): Long {
+        val lastSeen = tag.read.lastSeen
+        if (lastSeen == TagRead.NO_TIME || Math.abs(currentTime - lastSeen) > READER_CLOCK_SKEW_MS) {
+            return currentTime
         }
+        return lastSeen
     }
     private fun showLocationToast() {
-        val locationMessage = if (lastLocation != null) {
-            "Latitude: ${lastLocation!!.latitude}, Longitude: ${lastLocation!!.longitude}"
+        val position = locationTracker.positionAt(System.currentTimeMillis())
+        val locationMessage = if (position != null) {
+            "Latitude: ${position.latitude}, Longitude: ${position.longitude}"
         } else {
             "Location not available"
         }
@@ -237,6 +255,7 @@ class ScannerActivity : AppCompatActivity() {
             LOCATION_PERMISSION_REQUEST_CODE -> {
                 if (grantResults.isNotEmpty() && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                     // Permission was granted. Continue with location-related functionality
+                    locationTracker.start()
                 } else {
                     // Permission was denied. Provide an explanation to the user and guide them to enable it through settings
                     if (ActivityCompat.shouldShowRequestPermissionRationale(this, Manifest.permission.ACCESS_FINE_LOCATION)) {
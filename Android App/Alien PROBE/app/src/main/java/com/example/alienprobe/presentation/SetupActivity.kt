@@ -49,6 +49,7 @@ class SetupActivity : AppCompatActivity() {
                 binding.readerPasswordInput.text.toString(),
                 binding.readerIPInput.text.toString(),
                 binding.readerPortInput.text.toString().toIntOrNull() ?: 0,
+                binding.streamModeSwitch.isChecked,
             )
 
             val toast = Toast.makeText(applicationContext, "Preferences Saved", Toast.LENGTH_LONG)
@@ -58,13 +59,14 @@ class SetupActivity : AppCompatActivity() {
         }
     }
 
-    private fun savePreferences(username: String, password: String, ip: String, port: Int) {
+    private fun savePreferences(username: String, password: String, ip: String, port: Int, streamMode: Boolean) {
         val sharedPreferences = getSharedPreferences("AppPreferences", Context.MODE_PRIVATE)
         val editor = sharedPreferences.edit()
         editor.putString("Username",username)
         editor.putString("Password",password)
         editor.putString("IP",ip)
         editor.putInt("Port",port)
+        editor.putBoolean("StreamMode",streamMode)
         editor.apply()
     }
     private fun loadPreferences() {
@@ -73,6 +75,7 @@ class SetupActivity : AppCompatActivity() {
         val savedPassword = sharedPreferences.getString("Password", "password")
         val savedIP = sharedPreferences.getString("IP", "161.6.219.3")
         val savedPort = sharedPreferences.getInt("Port", 23)
+        val savedStreamMode = sharedPreferences.getBoolean("StreamMode", false)
 
         val readerIPInput = findViewById<TextView>(R.id.readerIPInput)
         readerIPInput.hint = savedIP
@@ -82,5 +85,6 @@ class SetupActivity : AppCompatActivity() {
         readerUsernameInput.hint = savedUsername
         val readerPasswordInput = findViewById<TextView>(R.id.readerPasswordInput)
         readerPasswordInput.hint = savedPassword
+        binding.streamModeSwitch.isChecked = savedStreamMode
     }
 }
\ No newline at end of file
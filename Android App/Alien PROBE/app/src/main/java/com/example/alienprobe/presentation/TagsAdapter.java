@@ -13,30 +13,114 @@ import android.view.ViewGroup;
 import android.view.Window;
 import android.widget.Button;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.alienprobe.R;
-import com.example.alienprobe.database.DataBaseHelper;
 import com.example.alienprobe.database.TagModel;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+
+// Sightings loaded so far, a page at a time (see ViewTagsActivity).
+// Lists are diffed off the main thread, so appending a page only binds the new rows.
+// Long-press starts a multi-selection; deleting is left to the Listener, which runs it off the main thread.
+public class TagsAdapter extends ListAdapter<TagModel, TagsAdapter.ViewHolder> {
+    private static final DiffUtil.ItemCallback<TagModel> DIFF = new DiffUtil.ItemCallback<TagModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TagModel oldItem, @NonNull TagModel newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TagModel oldItem, @NonNull TagModel newItem) {
+            // sightings are never edited in place
+            return oldItem.getId() == newItem.getId();
+        }
+    };
+
+    public interface Listener {
+        void onDeleteRequested(List<Integer> ids);
+        // everything recorded around this sighting's location
+        void onDeleteNearbyRequested(TagModel tag);
+        void onSelectionChanged(int selectedCount);
+    }
 
-public class TagsAdapter extends RecyclerView.Adapter<TagsAdapter.ViewHolder> {
-    private final List<TagModel> tagsList;
     private final LayoutInflater inflater;
     private final Context context; // Added to use for launching an Intent
-    private final DataBaseHelper dbHelper;
+    private final Listener listener;
+    // loaded rows by sighting ID, in display order, so removing by ID is O(1)
+    private final LinkedHashMap<Integer, TagModel> rows = new LinkedHashMap<>();
+    private final Set<Integer> selected = new HashSet<>();
 
-    public TagsAdapter(Context context, List<TagModel> tagsList, DataBaseHelper dbHelper) {
+    public TagsAdapter(Context context, Listener listener) {
+        super(DIFF);
         this.context = context;
         this.inflater = LayoutInflater.from(context);
-        this.tagsList = tagsList;
-        this.dbHelper = dbHelper;
+        this.listener = listener;
+    }
+
+    // Adds the next page below the rows already shown
+    public void appendPage(List<TagModel> page) {
+        for (TagModel tag : page) {
+            rows.put(tag.getId(), tag);
+        }
+        submitList(new ArrayList<>(rows.values()));
+    }
+
+    // Drops deleted sightings from the list in a single update; IDs that were never loaded are ignored
+    public void removeIds(Collection<Integer> ids) {
+        int selectedBefore = selected.size();
+        for (Integer id : ids) {
+            rows.remove(id);
+            selected.remove(id);
+        }
+        submitList(new ArrayList<>(rows.values()));
+        if (selected.size() != selectedBefore) {
+            listener.onSelectionChanged(selected.size());
+        }
+    }
+
+    // Drops loaded sightings recorded before beforeMillis, after a delete by time
+    public void removeBefore(long beforeMillis) {
+        int selectedBefore = selected.size();
+        Iterator<TagModel> it = rows.values().iterator();
+        while (it.hasNext()) {
+            TagModel tag = it.next();
+            if (tag.getTimeMillis() < beforeMillis) {
+                selected.remove(tag.getId());
+                it.remove();
+            }
+        }
+        submitList(new ArrayList<>(rows.values()));
+        if (selected.size() != selectedBefore) {
+            listener.onSelectionChanged(selected.size());
+        }
+    }
+
+    public List<Integer> getSelectedIds() {
+        return new ArrayList<>(selected);
+    }
+
+    private void toggleSelected(TagModel tag, int position) {
+        if (!selected.remove(tag.getId())) {
+            selected.add(tag.getId());
+        }
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position);
+        }
+        listener.onSelectionChanged(selected.size());
     }
 
     @NonNull
@@ -48,11 +132,23 @@ public class TagsAdapter extends RecyclerView.Adapter<TagsAdapter.ViewHolder> {
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        TagModel tag = tagsList.get(position);
+        TagModel tag = getItem(position);
         String text = "EPC: " + tag.getEPC();
 
         holder.epcTextView.setText(text);
-        holder.tagContainer.setOnClickListener(v -> showDialog(tag));
+        holder.tagContainer.setCardBackgroundColor(ContextCompat.getColor(context,
+                selected.contains(tag.getId()) ? R.color.text_grey : R.color.wku_red));
+        holder.tagContainer.setOnClickListener(v -> {
+            if (selected.isEmpty()) {
+                showDialog(tag);
+            } else {
+                toggleSelected(tag, holder.getAdapterPosition());
+            }
+        });
+        holder.tagContainer.setOnLongClickListener(v -> {
+            toggleSelected(tag, holder.getAdapterPosition());
+            return true;
+        });
         // Set the click listener for the mapButton instead of epcTextView
         holder.mapButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -80,6 +176,7 @@ public class TagsAdapter extends RecyclerView.Adapter<TagsAdapter.ViewHolder> {
 
 
         Button delete = dialog.findViewById(R.id.deleteButton);
+        Button deleteNearby = dialog.findViewById(R.id.deleteNearbyButton);
 
         TextView epc = dialog.findViewById(R.id.epcView);
 
@@ -87,16 +184,13 @@ public class TagsAdapter extends RecyclerView.Adapter<TagsAdapter.ViewHolder> {
         epc.setText(textToSet);
 
         delete.setOnClickListener(v -> {
-            // Delete the brew from the database
-            if (dbHelper.deleteTag(String.valueOf(tag.getId()))) {
-                // Remove brew from the list and notify adapter
-                int position = tagsList.indexOf(tag);
-                tagsList.remove(position);
-                notifyItemRemoved(position);
-                Toast.makeText(inflater.getContext(), "Tag deleted successfully", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(inflater.getContext(), "Failed to delete tag", Toast.LENGTH_SHORT).show();
-            }
+            List<Integer> ids = new ArrayList<>(1);
+            ids.add(tag.getId());
+            listener.onDeleteRequested(ids);
+            dialog.dismiss();
+        });
+        deleteNearby.setOnClickListener(v -> {
+            listener.onDeleteNearbyRequested(tag);
             dialog.dismiss();
         });
         dialog.show();
@@ -104,10 +198,6 @@ public class TagsAdapter extends RecyclerView.Adapter<TagsAdapter.ViewHolder> {
         dialog.getWindow().setBackgroundDrawable(new ColorDrawable(Color.TRANSPARENT));
         dialog.getWindow().setGravity(Gravity.CENTER);
     }
-    @Override
-    public int getItemCount() {
-        return tagsList.size();
-    }
     public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView epcTextView;
         Button mapButton;
@@ -3,18 +3,42 @@ package com.example.alienprobe.presentation
 import android.content.Intent
 import android.net.Uri
 import android.os.Bundle
+import android.view.View
 import android.widget.Button
+import android.widget.ProgressBar
+import android.widget.Toast
+import androidx.appcompat.app.AlertDialog
 import androidx.appcompat.app.AppCompatActivity
 import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 import com.example.alienprobe.database.DataBaseHelper
+import com.example.alienprobe.database.TagModel
 import com.example.alienprobe.R
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 
 class ViewTagsActivity : AppCompatActivity() {
+    companion object {
+        private const val PAGE_SIZE = 100
+        // start loading the next page this many rows before the end
+        private const val PREFETCH_DISTANCE = 30
+        // "Delete all here" covers a parking lot around the chosen sighting
+        private const val NEARBY_RADIUS_METERS = 100.0
+        private const val DAY_MS = 24 * 60 * 60 * 1000L
+    }
 
     private lateinit var tagsRecyclerView: RecyclerView
     private lateinit var adapter: TagsAdapter
     private lateinit var dataBaseHelper: DataBaseHelper
+    private lateinit var deleteProgress: ProgressBar
+    private lateinit var deleteSelectedButton: Button
+
+    // Keyset paging: each page is the PAGE_SIZE sightings older than the last one shown.
+    // Deletes run on the same thread, so a page never comes back with rows already deleted.
+    private val pageLoader: ExecutorService = Executors.newSingleThreadExecutor()
+    private var lastLoadedId = Long.MAX_VALUE
+    private var loading = false
+    private var endReached = false
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -31,21 +55,126 @@ class ViewTagsActivity : AppCompatActivity() {
     private fun setupRecycler() {
         tagsRecyclerView = findViewById(R.id.tagsRecyclerView)
         tagsRecyclerView.layoutManager = LinearLayoutManager(this)
+        deleteProgress = findViewById(R.id.deleteProgress)
+        deleteSelectedButton = findViewById(R.id.deleteSelectedButton)
 
     }
     private fun setDataBaseHelper() {
-        dataBaseHelper = DataBaseHelper(this)
+        dataBaseHelper = DataBaseHelper.getInstance(this)
     }
     private fun setupAdapter() {
-        val allTags = dataBaseHelper.allTags
         adapter = TagsAdapter(
             this,
-            allTags,
-            dataBaseHelper
+            object : TagsAdapter.Listener {
+                override fun onDeleteRequested(ids: List<Int>) {
+                    deleteInBackground { ids }
+                }
+                override fun onDeleteNearbyRequested(tag: TagModel) {
+                    confirmDelete("Delete everything recorded within ${NEARBY_RADIUS_METERS.toInt()} m of this tag?") {
+                        deleteInBackground {
+                            dataBaseHelper.getSightingIdsNear(tag.latitude, tag.longitude, NEARBY_RADIUS_METERS)
+                        }
+                    }
+                }
+                override fun onSelectionChanged(selectedCount: Int) {
+                    deleteSelectedButton.visibility = if (selectedCount > 0) View.VISIBLE else View.GONE
+                    deleteSelectedButton.text = "${getString(R.string.delete_selected_text)} ($selectedCount)"
+                }
+            }
         )
         tagsRecyclerView.adapter = adapter
+        tagsRecyclerView.addOnScrollListener(object : RecyclerView.OnScrollListener() {
+            override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+                val layoutManager = recyclerView.layoutManager as LinearLayoutManager
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.itemCount - PREFETCH_DISTANCE) {
+                    loadNextPage()
+                }
+            }
+        })
+        loadNextPage()
+    }
+    private fun loadNextPage() {
+        if (loading || endReached) return
+        loading = true
+        val beforeId = lastLoadedId
+        pageLoader.execute {
+            val page = dataBaseHelper.getSightingsPage(beforeId, PAGE_SIZE)
+            runOnUiThread {
+                loading = false
+                endReached = page.size < PAGE_SIZE
+                if (page.isNotEmpty()) {
+                    lastLoadedId = page.last().id.toLong()
+                    adapter.appendPage(page)
+                }
+            }
+        }
+    }
+    // Finds the rows to delete and deletes them in one transaction off the main thread,
+    // then removes them from the list in a single update
+    private fun deleteInBackground(findIds: () -> List<Int>) {
+        var ids = emptyList<Int>()
+        runDelete({ progress ->
+            ids = findIds()
+            dataBaseHelper.deleteSightings(ids, progress)
+        }) { adapter.removeIds(ids) }
+    }
+    // Deletes by time in the database without listing the rows first, then drops the loaded ones
+    private fun deleteBeforeInBackground(cutoff: Long) {
+        runDelete({ progress -> dataBaseHelper.deleteSightingsBefore(cutoff, progress) }) {
+            adapter.removeBefore(cutoff)
+        }
+    }
+    private fun runDelete(delete: (DataBaseHelper.DeleteProgress) -> Int, updateList: () -> Unit) {
+        deleteProgress.progress = 0
+        deleteProgress.visibility = View.VISIBLE
+        pageLoader.execute {
+            val deleted = delete(DataBaseHelper.DeleteProgress { done, total ->
+                runOnUiThread {
+                    deleteProgress.max = total
+                    deleteProgress.progress = done
+                }
+            })
+            runOnUiThread {
+                updateList()
+                deleteProgress.visibility = View.GONE
+                Toast.makeText(this, "$deleted tags deleted", Toast.LENGTH_SHORT).show()
+            }
+        }
+    }
+    private fun confirmDelete(message: String, onConfirm: () -> Unit) {
+        AlertDialog.Builder(this)
+            .setMessage(message)
+            .setPositiveButton(R.string.delete) { _, _ -> onConfirm() }
+            .setNegativeButton("Cancel", null)
+            .show()
+    }
+    private fun showDeleteOlderDialog() {
+        val choices = arrayOf("Older than 1 day", "Older than 7 days", "Older than 30 days", "Everything")
+        val days = longArrayOf(1, 7, 30, 0)
+        AlertDialog.Builder(this)
+            .setTitle(R.string.delete_older_text)
+            .setItems(choices) { _, which ->
+                confirmDelete("${choices[which]}: delete these tags?") {
+                    val cutoff = if (days[which] == 0L) Long.MAX_VALUE else System.currentTimeMillis() - days[which] * DAY_MS
+                    deleteBeforeInBackground(cutoff)
+                }
+            }
+            .show()
+    }
+    override fun onDestroy() {
+        super.onDestroy()
+        pageLoader.shutdownNow()
     }
     private fun setupListeners() {
+        findViewById<Button>(R.id.deleteOlderButton).setOnClickListener {
+            showDeleteOlderDialog()
+        }
+        deleteSelectedButton.setOnClickListener {
+            val ids = adapter.selectedIds
+            confirmDelete("Delete ${ids.size} selected tags?") {
+                deleteInBackground { ids }
+            }
+        }
         val backButton = findViewById<Button>(R.id.backButtonTagView)
         backButton.setOnClickListener {
             val intent = Intent(this, ScannerActivity::class.java)
@@ -0,0 +1,73 @@
+package com.example.alienprobe.api
+
+import com.google.gson.Gson
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Local stand-in for the permit lookup API.
+ * Permits below 1000 have one red Ford Focus with plate "P<permit>"; the rest are unknown.
+ */
+class PermitApiStub {
+    val server = MockWebServer()
+    val singleRequests = AtomicInteger()
+    val bulkRequests = AtomicInteger()
+
+    // false: answer the bulk endpoint with 404, like a server that predates it
+    @Volatile var bulkSupported = true
+    @Volatile var bulkStatus = 200
+    @Volatile var delayMs = 0L
+
+    private val gson = Gson()
+
+    init {
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val url = request.requestUrl!!
+                return when (url.encodedPath) {
+                    "/Lookup/GetVehicleListByPermit" -> {
+                        singleRequests.incrementAndGet()
+                        json(gson.toJson(vehiclesFor(url.queryParameter("PermitNumber")!!.toInt())))
+                    }
+                    "/Lookup/GetVehicleListByPermits" -> {
+                        bulkRequests.incrementAndGet()
+                        if (!bulkSupported) {
+                            MockResponse().setResponseCode(404)
+                        } else if (bulkStatus != 200) {
+                            MockResponse().setResponseCode(bulkStatus)
+                        } else {
+                            val permits = gson.fromJson(request.body.readUtf8(), IntArray::class.java)
+                            // like the real API, leave out permits with nothing on file
+                            val found = permits.filter { it < 1000 }.associateWith { vehiclesFor(it) }
+                            json(gson.toJson(found))
+                        }
+                    }
+                    else -> MockResponse().setResponseCode(404)
+                }
+            }
+        }
+        server.start()
+    }
+
+    val baseUrl: String get() = server.url("/").toString()
+
+    val requestCount: Int get() = singleRequests.get() + bulkRequests.get()
+
+    fun shutdown() = server.shutdown()
+
+    private fun vehiclesFor(permit: Int): List<Map<String, Any>> =
+        if (permit < 1000) {
+            listOf(mapOf("Id" to permit, "Plate" to "P$permit", "Make" to "Ford", "Model" to "Focus", "Color" to "Red"))
+        } else {
+            emptyList()
+        }
+
+    private fun json(body: String) = MockResponse()
+        .setHeader("Content-Type", "application/json")
+        .setBody(body)
+        .setBodyDelay(delayMs, TimeUnit.MILLISECONDS)
+}
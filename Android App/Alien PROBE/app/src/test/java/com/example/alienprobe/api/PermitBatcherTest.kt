@@ -0,0 +1,91 @@
+package com.example.alienprobe.api
+
+import org.junit.After
+import org.junit.Test
+
+import org.junit.Assert.*
+import java.util.Collections
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Micro-batching of permit lookups against PermitApiStub.
+ */
+class PermitBatcherTest {
+    private val stub = PermitApiStub()
+    private val executor = Executors.newFixedThreadPool(8)
+    // written on the batcher's threads
+    private val warnings = Collections.synchronizedList(mutableListOf<String>())
+    private val batcher = PermitBatcher(RetrofitClient.create(stub.baseUrl), executor) { _, message, _ -> warnings.add(message) }
+
+    @After
+    fun tearDown() {
+        stub.shutdown()
+        executor.shutdownNow()
+    }
+
+    private fun lookupAll(permits: Iterable<Int>): List<CompletableFuture<List<com.example.alienprobe.java.Vehicle>>> {
+        val futures = permits.map { batcher.lookup(it) }
+        CompletableFuture.allOf(*futures.toTypedArray()).get(10, TimeUnit.SECONDS)
+        return futures
+    }
+
+    @Test
+    fun onePoll_isOneBulkRequest() {
+        val futures = lookupAll((990 until 1010))
+
+        assertEquals(1, stub.bulkRequests.get())
+        assertEquals(0, stub.singleRequests.get())
+        assertEquals("P990", futures[0].get()[0].plate)
+        // left out of the bulk reply: no vehicles
+        assertTrue(futures[15].get().isEmpty())
+    }
+
+    @Test
+    fun largePoll_isSplitIntoMaxBatchRequests() {
+        lookupAll(0 until 250)
+
+        assertEquals(3, stub.bulkRequests.get())
+    }
+
+    @Test
+    fun repeatedPermitInOnePoll_isSentOnce() {
+        val futures = lookupAll(listOf(5, 6, 5, 5))
+
+        assertSame(futures[0], futures[2])
+        assertEquals(1, stub.bulkRequests.get())
+    }
+
+    @Test
+    fun serverWithoutBulk_fallsBackToSingles() {
+        stub.bulkSupported = false
+
+        val futures = lookupAll(0 until 10)
+        assertEquals("P3", futures[3].get()[0].plate)
+        assertEquals(1, stub.bulkRequests.get())
+        assertEquals(10, stub.singleRequests.get())
+        assertFalse(batcher.isBulkSupported)
+        assertEquals(listOf("No bulk vehicle lookup on this server (HTTP 404), using single lookups"), warnings)
+
+        // bulk is not probed again
+        lookupAll(10 until 20)
+        assertEquals(1, stub.bulkRequests.get())
+        assertEquals(20, stub.singleRequests.get())
+    }
+
+    @Test
+    fun bulkServerError_failsTheBatch() {
+        stub.bulkStatus = 500
+
+        val futures = listOf(1, 2).map { batcher.lookup(it) }
+        try {
+            futures[0].get(10, TimeUnit.SECONDS)
+            fail("expected the lookup to fail")
+        } catch (e: ExecutionException) {
+            assertTrue(e.cause!!.message!!.contains("500"))
+        }
+        assertTrue(batcher.isBulkSupported)
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.alienprobe.api
+
+import com.example.alienprobe.database.TagModel
+import com.google.gson.JsonParser
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
+import okio.GzipSource
+import okio.buffer
+import org.junit.After
+import org.junit.Test
+
+import org.junit.Assert.*
+import java.util.Random
+
+/**
+ * SightingUploader against a MockWebServer, with an in-memory outbox in place of the database.
+ */
+class SightingUploaderTest {
+    private class MemoryOutbox : SightingUploader.Outbox {
+        val rows = sortedMapOf<Long, TagModel>()
+        var uploaded = 0L
+        var pending = 0L
+        private var nextId = 1L
+
+        fun add(count: Int, vehicle: String? = null) = repeat(count) {
+            val id = nextId++
+            rows[id] = TagModel(id.toInt(), "E200%020X".format(id), -86.4, 36.98, 1_700_000_000_000L + id, vehicle)
+        }
+
+        override fun getSightingsAfter(afterId: Long, limit: Int) = rows.tailMap(afterId + 1).values.take(limit)
+        override fun getUploadedThrough() = uploaded
+        override fun setUploadedThrough(id: Long) { uploaded = id }
+        override fun getPendingThrough() = pending
+        override fun setPendingThrough(id: Long) { pending = id }
+        override fun getDeviceId() = "device-1"
+    }
+
+    private val server = MockWebServer().apply { start() }
+    private val outbox = MemoryOutbox()
+    private val warnings = mutableListOf<String>()
+    private val log = ApiLog { _, message, _ -> warnings.add(message) }
+    private val uploader = SightingUploader(RetrofitClient.create(server.url("/").toString()), outbox, log)
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    private fun ok() = server.enqueue(MockResponse())
+
+    // IDs in an upload, after undoing the gzip
+    private fun idsIn(request: RecordedRequest): List<Long> {
+        assertEquals("gzip", request.getHeader("Content-Encoding"))
+        val json = GzipSource(request.body).buffer().readUtf8()
+        val root = JsonParser.parseString(json).asJsonObject
+        assertEquals("device-1", root["deviceId"].asString)
+        return root["sightings"].asJsonArray.map { it.asJsonObject["id"].asLong }
+    }
+
+    @Test
+    fun backlog_isSentOnceInCappedBatches() {
+        outbox.add(2500)
+        repeat(3) { ok() }
+
+        assertTrue(uploader.syncOnce())
+
+        val sent = (1..3).flatMap { idsIn(server.takeRequest()) }
+        assertEquals((1L..2500L).toList(), sent)
+        assertEquals(3, server.requestCount)
+        assertEquals(2500L, outbox.uploaded)
+        assertEquals(0L, outbox.pending)
+
+        // nothing new: no request at all
+        assertTrue(uploader.syncOnce())
+        assertEquals(3, server.requestCount)
+    }
+
+    @Test
+    fun largeRows_areSplitByBytes() {
+        outbox.add(100, "x".repeat(20_000))
+        repeat(10) { ok() }
+
+        assertTrue(uploader.syncOnce())
+
+        assertTrue(server.requestCount > 1)
+        var total = 0
+        repeat(server.requestCount) {
+            val request = server.takeRequest()
+            total += idsIn(request).size
+            // compressed, and well under the raw size
+            assertTrue(request.bodySize < SightingUploader.MAX_BATCH_BYTES)
+        }
+        assertEquals(100, total)
+    }
+
+    @Test
+    fun failedBatch_isResentWithSameRowsAndKey() {
+        outbox.add(10)
+        server.enqueue(MockResponse().setResponseCode(503))
+
+        assertFalse(uploader.syncOnce())
+        val first = server.takeRequest()
+        assertEquals(0L, outbox.uploaded)
+        assertEquals(listOf("Upload ${first.getHeader("Idempotency-Key")} failed: HTTP 503"), warnings)
+
+        // more scans while offline: the retry must not grow
+        outbox.add(5)
+        outbox.rows.remove(3L)
+        ok(); ok()
+        assertTrue(uploader.syncOnce())
+
+        val retry = server.takeRequest()
+        assertEquals(first.getHeader("Idempotency-Key"), retry.getHeader("Idempotency-Key"))
+        assertEquals((1L..10L).filter { it != 3L }, idsIn(retry))
+        val next = server.takeRequest()
+        assertNotEquals(first.getHeader("Idempotency-Key"), next.getHeader("Idempotency-Key"))
+        assertEquals((11L..15L).toList(), idsIn(next))
+        assertEquals(15L, outbox.uploaded)
+    }
+
+    @Test
+    fun lostReply_isRetriedAndDuplicateAccepted() {
+        outbox.add(4)
+        server.enqueue(MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST))
+        server.enqueue(MockResponse().setResponseCode(409))
+
+        assertFalse(uploader.syncOnce())
+        assertTrue(uploader.syncOnce())
+
+        assertEquals(server.takeRequest().getHeader("Idempotency-Key"), server.takeRequest().getHeader("Idempotency-Key"))
+        assertEquals(4L, outbox.uploaded)
+    }
+
+    @Test
+    fun pendingBatch_survivesRestart() {
+        outbox.add(3)
+        server.enqueue(MockResponse().setResponseCode(500))
+        assertFalse(uploader.syncOnce())
+        val key = server.takeRequest().getHeader("Idempotency-Key")
+
+        outbox.add(3)
+        ok(); ok()
+        val restarted = SightingUploader(RetrofitClient.create(server.url("/").toString()), outbox, log)
+        assertTrue(restarted.syncOnce())
+
+        val retry = server.takeRequest()
+        assertEquals(key, retry.getHeader("Idempotency-Key"))
+        assertEquals(listOf(1L, 2L, 3L), idsIn(retry))
+    }
+
+    @Test
+    fun backoff_doublesUpToTheCap() {
+        val random = Random(1)
+        for (failures in 0 until 40) {
+            val ceiling = minOf(SightingUploader.MAX_BACKOFF_MS, SightingUploader.MIN_BACKOFF_MS shl minOf(failures, 20))
+            val wait = SightingUploader.backoffMs(failures, random)
+            assertTrue("$failures: $wait", wait >= ceiling / 2 && wait <= ceiling)
+        }
+    }
+}
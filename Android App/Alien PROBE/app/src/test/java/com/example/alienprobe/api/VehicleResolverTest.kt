@@ -0,0 +1,143 @@
+package com.example.alienprobe.api
+
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import org.junit.Assert.*
+import java.util.Collections
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+/**
+ * VehicleResolver against a local mock of the permit lookup API.
+ */
+class VehicleResolverTest {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val stub = PermitApiStub()
+    private var now = 1_000_000L
+    // written on the resolver's threads too
+    private val warnings = Collections.synchronizedList(mutableListOf<String>())
+    private val log = ApiLog { _, message, _ -> warnings.add(message) }
+
+    @After
+    fun tearDown() {
+        stub.shutdown()
+    }
+
+    private fun resolver(cacheName: String? = null) = VehicleResolver(
+        RetrofitClient.create(stub.baseUrl),
+        cacheName?.let { folder.root.resolve(it) },
+        VehicleResolver.MAX_ENTRIES,
+        log
+    ) { now }
+
+    @Test
+    fun repeatLookups_areServedFromCache() {
+        val resolver = resolver()
+
+        val first = resolver.resolve(42).get(5, TimeUnit.SECONDS)
+        val second = resolver.resolve(42).get(5, TimeUnit.SECONDS)
+
+        assertEquals("P42", first[0].plate)
+        assertSame(first, second)
+        assertEquals(1, stub.requestCount)
+    }
+
+    @Test
+    fun unknownPermits_areCachedUntilNegativeTtl() {
+        val resolver = resolver()
+
+        assertTrue(resolver.resolve(5000).get(5, TimeUnit.SECONDS).isEmpty())
+        assertTrue(resolver.resolve(5000).get(5, TimeUnit.SECONDS).isEmpty())
+        assertEquals(1, stub.requestCount)
+
+        now += VehicleResolver.NEGATIVE_TTL_MS
+        resolver.resolve(5000).get(5, TimeUnit.SECONDS)
+        assertEquals(2, resolver.requestCount)
+        assertEquals(2, stub.requestCount)
+    }
+
+    @Test
+    fun concurrentLookups_shareOneRequest() {
+        stub.delayMs = 200
+        val resolver = resolver()
+
+        val futures = (1..20).map { resolver.resolve(7) }
+        CompletableFuture.allOf(*futures.toTypedArray()).get(5, TimeUnit.SECONDS)
+
+        assertEquals(1, stub.requestCount)
+        assertTrue(futures.all { it.get()[0].plate == "P7" })
+    }
+
+    @Test
+    fun savedCache_answersOfflineAfterRestart() {
+        val warm = resolver("vehicles.json")
+        warm.resolve(12).get(5, TimeUnit.SECONDS)
+        warm.save()
+        stub.shutdown()
+
+        now += VehicleResolver.TTL_MS
+        val restarted = resolver("vehicles.json")
+
+        assertEquals("P12", restarted.peek(12)!![0].plate)
+        // expired and the server is gone, so the stale answer is used
+        assertEquals("P12", restarted.resolve(12).get(5, TimeUnit.SECONDS)[0].plate)
+    }
+
+    @Test
+    fun corruptCache_isAColdStartAndReported() {
+        folder.root.resolve("vehicles.json").writeText("[{\"permitId\": 12, \"vehi")
+
+        val resolver = resolver("vehicles.json")
+
+        assertNull(resolver.peek(12))
+        assertEquals(listOf("Could not load vehicle cache"), warnings)
+        assertEquals("P12", resolver.resolve(12).get(5, TimeUnit.SECONDS)[0].plate)
+    }
+
+    @Test
+    fun lruBound_evictsLeastRecentlyUsed() {
+        val resolver = VehicleResolver(RetrofitClient.create(stub.baseUrl), null, 2, log) { now }
+
+        resolver.resolve(1).get(5, TimeUnit.SECONDS)
+        resolver.resolve(2).get(5, TimeUnit.SECONDS)
+        resolver.resolve(1).get(5, TimeUnit.SECONDS)
+        resolver.resolve(3).get(5, TimeUnit.SECONDS)
+
+        assertEquals(2, resolver.size())
+        assertNotNull(resolver.peek(1))
+        assertNull(resolver.peek(2))
+    }
+
+    @Test
+    fun wholeLot_resolvesInOneRoundTripPerHundredCars() {
+        stub.delayMs = 50
+        val resolver = resolver()
+
+        val futures = (0 until 300).map { resolver.resolve(it) }
+        CompletableFuture.allOf(*futures.toTypedArray()).get(30, TimeUnit.SECONDS)
+
+        assertEquals(3, stub.requestCount)
+        assertEquals("P299", futures[299].get()[0].plate)
+    }
+
+    @Test
+    fun wholeLot_withoutBulkEndpoint_resolvesInSeconds() {
+        stub.bulkSupported = false
+        stub.delayMs = 50
+        val resolver = resolver()
+
+        val start = System.nanoTime()
+        val futures = (0 until 300).map { resolver.resolve(it) }
+        CompletableFuture.allOf(*futures.toTypedArray()).get(30, TimeUnit.SECONDS)
+        val elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        assertEquals(300, stub.singleRequests.get())
+        // 300 x 50 ms one at a time would be 15 s
+        assertTrue("took $elapsedMs ms", elapsedMs < 5_000)
+    }
+}
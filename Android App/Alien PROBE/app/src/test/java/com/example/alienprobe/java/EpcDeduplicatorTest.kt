@@ -0,0 +1,70 @@
+package com.example.alienprobe.java
+
+import org.junit.Test
+
+import org.junit.Assert.*
+
+/**
+ * Re-arm windows and eviction of the EPC deduplicator.
+ */
+class EpcDeduplicatorTest {
+    private val minute = 60_000L
+
+    @Test
+    fun repeatWithinWindow_isSuppressed() {
+        val dedup = EpcDeduplicator(100, 10 * minute)
+        val tag = TagRead.ofEpc("3030401A78015CF6C0015EFD")
+
+        assertTrue(dedup.isNew(tag, 1_000))
+        assertFalse(dedup.isNew(tag, 1_000 + minute))
+        assertFalse(dedup.isNew(TagRead.ofEpc("3030401A78015CF6C0015EFD"), 1_000 + 9 * minute))
+        assertTrue(dedup.isNew(tag, 1_000 + 10 * minute))
+        assertEquals(1, dedup.size())
+    }
+
+    @Test
+    fun epcsDifferingOnlyInLength_areDistinct() {
+        val dedup = EpcDeduplicator(100, minute)
+
+        assertTrue(dedup.isNew(TagRead.ofEpc("6160"), 1))
+        assertTrue(dedup.isNew(TagRead.ofEpc("000000000000000000006160"), 1))
+        assertFalse(dedup.isNew(TagRead.ofEpc("000000000000000000006160"), 2))
+    }
+
+    @Test
+    fun fullTable_evictsOldestAndStaysBounded() {
+        val dedup = EpcDeduplicator(1_000, 60 * minute)
+        for (i in 0 until 20_000) {
+            assertTrue(dedup.isNew(0L, i.toLong(), 24, 1L + i))
+        }
+        assertTrue(dedup.size() <= 1_000)
+        // the most recent tags are still remembered
+        assertFalse(dedup.isNew(0L, 19_999L, 24, 30_000))
+    }
+
+    @Test
+    fun clear_forgetsEverything() {
+        val dedup = EpcDeduplicator(100, 10 * minute)
+        val tag = TagRead.ofEpc("303402E1C821200BA43B8B47")
+        dedup.isNew(tag, 1)
+        dedup.clear()
+
+        assertEquals(0, dedup.size())
+        assertTrue(dedup.isNew(tag, 2))
+    }
+
+    @Test
+    fun forgotten_isNewAgainWithinWindow() {
+        val dedup = EpcDeduplicator(100, 10 * minute)
+        val tag = TagRead.ofEpc("3030401A78015CF6C0016A16")
+        assertTrue(dedup.isNew(tag, 1_000))
+        assertFalse(dedup.isNew(tag, 2_000))
+
+        dedup.forget(tag)
+        assertTrue(dedup.isNew(tag, 3_000))
+        assertFalse(dedup.isNew(tag, 4_000))
+        // forgetting a tag never reported changes nothing
+        dedup.forget(TagRead.ofEpc("303402E1C821200BA43B8B47"))
+        assertEquals(1, dedup.size())
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.alienprobe.java
+
+import org.junit.Test
+
+import org.junit.Assert.*
+
+/**
+ * Placing a read between, before and after the buffered location fixes.
+ */
+class FixBufferTest {
+    private val delta = 1e-9
+
+    @Test
+    fun empty_hasNoPosition() {
+        assertNull(FixBuffer().at(1_000))
+    }
+
+    @Test
+    fun betweenFixes_interpolates() {
+        val fixes = FixBuffer()
+        fixes.add(1_000, 37.0, -86.0, 5f)
+        fixes.add(2_000, 37.001, -86.002, 8f)
+
+        val position = fixes.at(1_250)!!
+        assertEquals(37.00025, position.latitude, delta)
+        assertEquals(-86.0005, position.longitude, delta)
+        assertEquals(8f, position.accuracy)
+        assertEquals(250, position.fixAgeMs)
+    }
+
+    @Test
+    fun onAFix_isThatFix() {
+        val fixes = FixBuffer()
+        fixes.add(1_000, 37.0, -86.0, 5f)
+        fixes.add(2_000, 37.001, -86.002, 8f)
+
+        val position = fixes.at(2_000)!!
+        assertEquals(37.001, position.latitude, delta)
+        assertEquals(-86.002, position.longitude, delta)
+        assertEquals(0, position.fixAgeMs)
+    }
+
+    @Test
+    fun afterNewest_carriesForwardOnlySoFar() {
+        val fixes = FixBuffer()
+        fixes.add(1_000, 37.0, -86.0, 5f)
+        fixes.add(2_000, 37.001, -86.0, 5f)
+
+        assertEquals(37.0015, fixes.at(2_500)!!.latitude, delta)
+        // projected at most MAX_EXTRAPOLATE_MS past the newest fix
+        val late = fixes.at(2_000 + FixBuffer.MAX_GAP_MS)!!
+        assertEquals(37.003, late.latitude, delta)
+        assertEquals(FixBuffer.MAX_GAP_MS, late.fixAgeMs)
+        assertNull(fixes.at(2_001 + FixBuffer.MAX_GAP_MS))
+    }
+
+    @Test
+    fun singleFix_isHeldButNotForever() {
+        val fixes = FixBuffer()
+        fixes.add(10_000, 37.0, -86.0, 5f)
+
+        assertEquals(37.0, fixes.at(12_000)!!.latitude, delta)
+        assertEquals(37.0, fixes.at(9_000)!!.latitude, delta)
+        assertNull(fixes.at(10_001 + FixBuffer.MAX_GAP_MS))
+        assertNull(fixes.at(9_999 - FixBuffer.MAX_GAP_MS))
+    }
+
+    @Test
+    fun longGapBetweenFixes_hasNoPositionInTheMiddle() {
+        val fixes = FixBuffer()
+        fixes.add(0, 37.0, -86.0, 5f)
+        fixes.add(4 * FixBuffer.MAX_GAP_MS, 38.0, -86.0, 5f)
+
+        assertNotNull(fixes.at(FixBuffer.MAX_GAP_MS))
+        assertNull(fixes.at(2 * FixBuffer.MAX_GAP_MS))
+    }
+
+    @Test
+    fun outOfOrderFix_isIgnored() {
+        val fixes = FixBuffer()
+        fixes.add(2_000, 37.0, -86.0, 5f)
+        fixes.add(1_000, 38.0, -86.0, 5f)
+        fixes.add(2_000, 39.0, -86.0, 5f)
+
+        assertEquals(1, fixes.size())
+        assertEquals(37.0, fixes.at(1_000)!!.latitude, delta)
+    }
+
+    @Test
+    fun full_dropsOldest() {
+        val fixes = FixBuffer(3)
+        for (i in 1..5) {
+            fixes.add(i * 1_000L, i.toDouble(), 0.0, 5f)
+        }
+
+        assertEquals(3, fixes.size())
+        // oldest kept is the third; before it the position is held, not interpolated
+        assertEquals(3.0, fixes.at(1_000)!!.latitude, delta)
+        assertEquals(4.5, fixes.at(4_500)!!.latitude, delta)
+        assertEquals(3.5, fixes.at(3_500)!!.latitude, delta)
+    }
+}
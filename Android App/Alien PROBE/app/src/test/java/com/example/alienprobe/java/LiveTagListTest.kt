@@ -0,0 +1,75 @@
+package com.example.alienprobe.java
+
+import org.junit.Test
+
+import org.junit.Assert.*
+
+/**
+ * Per-EPC counts, stable ids and the row cap of the live scan list.
+ */
+class LiveTagListTest {
+    private fun tags(vararg epcs: String) = epcs.map { RFIDTag(it) }
+
+    @Test
+    fun repeatedReads_countOnOneRow() {
+        val list = LiveTagList()
+        list.add(tags("3030401A78015CF6C0015EFD", "303402E1C821200BA43B8B47"), 1_000)
+        list.add(tags("3030401A78015CF6C0015EFD"), 2_000)
+
+        val rows = list.snapshot()
+        assertEquals(2, rows.size)
+        assertEquals("3030401A78015CF6C0015EFD", rows[0].epc)
+        assertEquals(2, rows[0].count)
+        assertEquals(2_000, rows[0].lastSeen)
+        assertEquals(1, rows[1].count)
+        assertEquals(1_000, rows[1].lastSeen)
+    }
+
+    @Test
+    fun updatedRow_keepsIdAndPositionButIsANewObject() {
+        val list = LiveTagList()
+        list.add(tags("AAAA", "BBBB"), 1)
+        val before = list.snapshot()
+        list.add(tags("AAAA"), 2)
+        val after = list.snapshot()
+
+        assertEquals(before[0].id, after[0].id)
+        assertNotSame(before[0], after[0])
+        assertFalse(before[0].sameContents(after[0]))
+        // untouched rows are the same objects, so a diff skips them
+        assertSame(before[1], after[1])
+        assertNotEquals(after[0].id, after[1].id)
+    }
+
+    @Test
+    fun readerCount_addsUp() {
+        val list = LiveTagList()
+        val read = TagRead(0L, 0x1234L, 4, 0, Float.NaN, 7, TagRead.NO_TIME, TagRead.NO_TIME)
+        list.add(listOf(RFIDTag(read), RFIDTag(read)), 1)
+
+        assertEquals(14, list.snapshot()[0].count)
+    }
+
+    @Test
+    fun pastMaxRows_dropsTheOldestTag() {
+        val list = LiveTagList(500)
+        for (i in 0 until 600) {
+            list.add(tags(String.format("%024X", i)), i.toLong())
+        }
+        val rows = list.snapshot()
+        assertEquals(500, rows.size)
+        assertEquals(String.format("%024X", 100), rows[0].epc)
+        // ids are never reused
+        assertEquals(100L, rows[0].id)
+    }
+
+    @Test
+    fun clear_emptiesTheList() {
+        val list = LiveTagList()
+        list.add(tags("AAAA"), 1)
+        list.clear()
+
+        assertEquals(0, list.size())
+        assertTrue(list.snapshot().isEmpty())
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.alienprobe.java
+
+import org.junit.Test
+
+import org.junit.Assert.*
+
+/**
+ * Holding reads that came before any fix, and placing or giving them up as fixes arrive.
+ */
+class SightingPlacerTest {
+    private val fixes = FixBuffer()
+    private val placed = mutableListOf<Pair<String, Double>>()
+    private val dropped = mutableListOf<String>()
+    private val sink = object : SightingPlacer.Sink<String> {
+        override fun placed(sighting: String, position: FixBuffer.Position) {
+            placed.add(sighting to position.latitude)
+        }
+        override fun dropped(sighting: String) {
+            dropped.add(sighting)
+        }
+    }
+
+    @Test
+    fun withAFix_isPlacedAtOnce() {
+        fixes.add(1_000, 37.0, -86.0, 5f)
+        val placer = SightingPlacer(fixes, 10, sink)
+
+        placer.offer("a", 1_500)
+        assertEquals(listOf("a" to 37.0), placed)
+        assertEquals(0, placer.pendingCount)
+    }
+
+    @Test
+    fun noFixYet_isHeldUntilOneArrives() {
+        val placer = SightingPlacer(fixes, 10, sink)
+
+        placer.offer("a", 1_000)
+        placer.offer("b", 2_000)
+        assertTrue(placed.isEmpty())
+        assertTrue(dropped.isEmpty())
+        assertEquals(2, placer.pendingCount)
+
+        // a cold start: the first fix comes a few seconds after the reads
+        fixes.add(6_000, 37.0, -86.0, 5f)
+        placer.retry(6_500)
+        assertEquals(listOf("a" to 37.0, "b" to 37.0), placed)
+        assertTrue(dropped.isEmpty())
+        assertEquals(0, placer.pendingCount)
+    }
+
+    @Test
+    fun noFixInTime_isDropped() {
+        val placer = SightingPlacer(fixes, 10, sink)
+        placer.offer("a", 1_000)
+
+        placer.retry(1_000 + FixBuffer.MAX_GAP_MS)
+        assertEquals(1, placer.pendingCount)
+        // the first fix is too late to place the read
+        fixes.add(2_001 + FixBuffer.MAX_GAP_MS, 37.0, -86.0, 5f)
+        placer.retry(2_001 + FixBuffer.MAX_GAP_MS)
+        assertTrue(placed.isEmpty())
+        assertEquals(listOf("a"), dropped)
+    }
+
+    @Test
+    fun muchLaterRead_dropsTheOnesItOutlived() {
+        val placer = SightingPlacer(fixes, 10, sink)
+        placer.offer("a", 1_000)
+        placer.offer("b", 2_000 + FixBuffer.MAX_GAP_MS)
+
+        assertEquals(listOf("a"), dropped)
+        assertEquals(1, placer.pendingCount)
+    }
+
+    @Test
+    fun full_dropsOldest() {
+        val placer = SightingPlacer(fixes, 2, sink)
+        placer.offer("a", 1_000)
+        placer.offer("b", 1_001)
+        placer.offer("c", 1_002)
+
+        assertEquals(listOf("a"), dropped)
+        placer.dropAll()
+        assertEquals(listOf("a", "b", "c"), dropped)
+        assertEquals(0, placer.pendingCount)
+    }
+}
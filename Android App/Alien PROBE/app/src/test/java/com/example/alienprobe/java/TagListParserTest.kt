@@ -0,0 +1,81 @@
+package com.example.alienprobe.java
+
+import org.junit.Test
+
+import org.junit.Assert.*
+import java.util.TimeZone
+
+/**
+ * Parses replies to "t" captured from the ALR-F800 in each TagListFormat.
+ */
+class TagListParserTest {
+    private val utc = TimeZone.getTimeZone("UTC")
+
+    private fun transcript(name: String): String =
+        javaClass.getResourceAsStream("/transcripts/$name")!!.bufferedReader().use { it.readText() }
+
+    private fun parse(parser: TagListParser, reply: String): List<TagRead> {
+        val reads = mutableListOf<TagRead>()
+        val count = parser.parse(reply) { reads.add(it) }
+        assertEquals(reads.size, count)
+        return reads
+    }
+
+    @Test
+    fun textFormat_extractsAllFields() {
+        val reads = parse(TagListParser.text(utc), transcript("taglist_text.txt"))
+
+        assertEquals(4, reads.size)
+        assertEquals("3030401A78015CF6C0015EFD", reads[0].epc)
+        assertEquals(12, reads[0].count)
+        assertEquals(0, reads[0].antenna)
+        assertEquals(1713267763000L, reads[0].firstSeen)
+        assertEquals(1713267764000L, reads[0].lastSeen)
+        assertFalse(reads[0].hasRssi())
+        assertEquals("000000000000000000006160", reads[1].epc)
+        assertEquals(1, reads[1].antenna)
+        // millisecond timestamps
+        assertEquals(1713267762125L, reads[2].firstSeen)
+        assertEquals(1713267764500L, reads[2].lastSeen)
+    }
+
+    @Test
+    fun terseFormat_matchesTextFormat() {
+        val text = parse(TagListParser.text(utc), transcript("taglist_text.txt"))
+        val terse = parse(TagListParser.terse(), transcript("taglist_terse.txt"))
+
+        assertEquals(text.size, terse.size)
+        for (i in text.indices) {
+            assertTrue(text[i].sameEpc(terse[i]))
+            assertEquals(text[i].count, terse[i].count)
+            assertEquals(text[i].antenna, terse[i].antenna)
+        }
+    }
+
+    @Test
+    fun customFormat_extractsRssi() {
+        val reads = parse(TagListParser.custom("%k,%a,%r,\${RSSI}"), transcript("taglist_custom.txt"))
+
+        assertEquals(4, reads.size)
+        assertEquals("303402E1C821200BA43B8B47", reads[3].epc)
+        assertEquals(1, reads[3].antenna)
+        assertEquals(3, reads[3].count)
+        assertEquals(-64.2f, reads[3].rssi, 0.001f)
+        assertEquals(-71.0f, reads[1].rssi, 0.001f)
+    }
+
+    @Test
+    fun noTagsReply_emitsNothing() {
+        assertTrue(parse(TagListParser.text(), transcript("taglist_empty.txt")).isEmpty())
+        assertTrue(parse(TagListParser.text(), "Alien>\r\n").isEmpty())
+    }
+
+    @Test
+    fun epcRoundTripsThroughTwoLongs() {
+        val read = TagRead.ofEpc("E200 3411 B802 0115 1612 7239")
+        assertEquals("E2003411B802011516127239", read.epc)
+        assertEquals(24, read.epcDigits)
+        assertTrue(read.sameEpc(TagRead.ofEpc("e2003411b802011516127239")))
+        assertEquals("3030401A78015CF6C0015EFD", RFIDTag(TagRead.ofEpc("3030401A78015CF6C0015EFD")).getEPC())
+    }
+}
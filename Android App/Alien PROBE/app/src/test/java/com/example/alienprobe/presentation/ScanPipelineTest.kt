@@ -0,0 +1,162 @@
+package com.example.alienprobe.presentation
+
+import com.example.alienprobe.java.EpcDeduplicator
+import com.example.alienprobe.java.LiveTagList
+import com.example.alienprobe.java.RFIDTag
+import com.example.alienprobe.java.TagSource
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.Test
+
+import org.junit.Assert.*
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Stages, backpressure, retries and cancellation of the scan Flow, against a scripted source.
+ */
+class ScanPipelineTest {
+    private val minute = 60_000L
+
+    private open class ScriptedSource(private val polls: List<List<String>>) : TagSource {
+        val pollCount = AtomicInteger()
+        val opened = AtomicBoolean()
+        val closed = CountDownLatch(1)
+
+        override fun open() {
+            opened.set(true)
+        }
+
+        override fun poll(): List<RFIDTag> {
+            val i = pollCount.getAndIncrement()
+            return polls[i % polls.size].map { RFIDTag(it) }
+        }
+
+        override fun close() {
+            closed.countDown()
+        }
+    }
+
+    private fun pipeline(persisted: MutableList<String>) = ScanPipeline(
+        LiveTagList(), EpcDeduplicator(1_000, 10 * minute), { tag, _ -> persisted.add(tag.getEPC()) })
+
+    @Test
+    fun polls_areCountedListedAndPersistedOnce() = runBlocking {
+        val persisted = Collections.synchronizedList(mutableListOf<String>())
+        val source = ScriptedSource(listOf(listOf("AAAA", "BBBB"), listOf("AAAA"), listOf("CCCC", "AAAA")))
+
+        val updates = pipeline(persisted).updates(source).take(3).toList()
+
+        assertTrue(source.opened.get())
+        assertTrue(source.closed.await(1, TimeUnit.SECONDS))
+        assertEquals(listOf(2, 0, 1), updates.map { it.newTags.size })
+        assertEquals(listOf("AAAA", "BBBB", "CCCC"), persisted)
+        val rows = updates.last().rows
+        assertEquals(listOf("AAAA", "BBBB", "CCCC"), rows.map { it.epc })
+        assertEquals(3L, rows[0].count)
+    }
+
+    @Test
+    fun slowCollector_holdsBackTheReader() = runBlocking {
+        val source = ScriptedSource(listOf(listOf("AAAA")))
+
+        pipeline(mutableListOf()).updates(source).take(5).onEach { delay(50) }.collect()
+
+        // a few polls wait in the buffers; the reader is not polled flat out
+        assertTrue("polled ${source.pollCount.get()} times", source.pollCount.get() <= 5 + 2 * ScanPipeline.POLL_BUFFER + 4)
+    }
+
+    @Test
+    fun failedPolls_areRetriedAndReported() = runBlocking {
+        val failures = AtomicInteger()
+        val source = object : ScriptedSource(listOf(listOf("AAAA"))) {
+            override fun poll(): List<RFIDTag> {
+                if (pollCount.get() < 2) {
+                    pollCount.incrementAndGet()
+                    throw IllegalStateException("reader busy")
+                }
+                return super.poll()
+            }
+        }
+        val pipeline = ScanPipeline(LiveTagList(), EpcDeduplicator(100, minute), { _, _ -> },
+            onPollFailed = { failures.incrementAndGet() })
+
+        val update = withTimeout(5_000) { pipeline.updates(source).take(1).toList().single() }
+
+        assertEquals(2, failures.get())
+        assertEquals(1, update.tagCount)
+    }
+
+    @Test
+    fun failedOpen_isRetriedAndReported() = runBlocking {
+        val failures = AtomicInteger()
+        val opens = AtomicInteger()
+        val source = object : ScriptedSource(listOf(listOf("AAAA"))) {
+            override fun open() {
+                if (opens.incrementAndGet() < 3) {
+                    throw IllegalStateException("autonomous mode refused")
+                }
+                super.open()
+            }
+        }
+        val pipeline = ScanPipeline(LiveTagList(), EpcDeduplicator(100, minute), { _, _ -> },
+            onPollFailed = { failures.incrementAndGet() })
+
+        val update = withTimeout(5_000) { pipeline.updates(source).take(1).toList().single() }
+
+        assertEquals(2, failures.get())
+        assertEquals(3, opens.get())
+        assertTrue(source.opened.get())
+        assertEquals(1, update.tagCount)
+    }
+
+    @Test
+    fun cancelling_interruptsABlockedPollAndClosesTheSource() = runBlocking {
+        val polling = CountDownLatch(1)
+        val interrupted = AtomicBoolean()
+        val source = object : ScriptedSource(listOf(emptyList())) {
+            override fun poll(): List<RFIDTag> {
+                polling.countDown()
+                try {
+                    Thread.sleep(60_000)
+                } catch (e: InterruptedException) {
+                    interrupted.set(true)
+                    throw e
+                }
+                return emptyList()
+            }
+        }
+
+        val job = launch(Dispatchers.Default) { pipeline(mutableListOf()).updates(source).collect() }
+        assertTrue(polling.await(5, TimeUnit.SECONDS))
+        job.cancel()
+        job.join()
+
+        assertTrue(interrupted.get())
+        assertTrue(source.closed.await(1, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun pollOnce_goesThroughTheSameStages() = runBlocking {
+        val persisted = mutableListOf<String>()
+        val pipeline = pipeline(persisted)
+
+        val first = pipeline.pollOnce { listOf(RFIDTag("AAAA")) }
+        val second = pipeline.pollOnce { listOf(RFIDTag("AAAA")) }
+
+        assertEquals(1, first.newTags.size)
+        assertTrue(second.newTags.isEmpty())
+        assertEquals(2L, second.rows.single().count)
+        assertEquals(listOf("AAAA"), persisted)
+    }
+}
@@ -3,5 +3,6 @@ plugins {
     id("com.android.application") version "8.2.2" apply false
     id("org.jetbrains.kotlin.android") version "1.9.0" apply false
     id("com.android.test") version "8.2.2" apply false
+    id("me.champeau.jmh") version "0.7.2" apply false
 }
 
@@ -0,0 +1,40 @@
+// JMH benchmarks for the app's pure-Java hot paths.
+// Run with ./gradlew :jmh:jmh; the app sources are compiled in directly so no Android runtime is needed.
+plugins {
+    id("java-library")
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java"))
+            include(
+                "com/example/alienprobe/java/TagRead.java",
+                "com/example/alienprobe/java/EpcDeduplicator.java",
+                "com/example/alienprobe/java/TagListParser.java",
+                "com/example/alienprobe/java/RFIDTag.java",
+                "com/example/alienprobe/java/Vehicle.java",
+                "com/example/alienprobe/database/TagModel.java"
+            )
+        }
+    }
+}
+
+dependencies {
+    compileOnly("androidx.annotation:annotation:1.7.1")
+    implementation("com.google.code.gson:gson:2.10")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,80 @@
+package com.example.alienprobe.jmh;
+
+import com.example.alienprobe.java.EpcDeduplicator;
+import com.example.alienprobe.java.TagRead;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cost of deciding whether one incoming read is new, once `tagsSeen` distinct tags have been seen.
+// listScan is the old ScannerActivity check (tagList.any { it.epc == epc }) for comparison.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EpcDeduplicatorBenchmark {
+    private static final long REARM_MS = 10 * 60 * 1000L;
+
+    @Param({"100", "5000", "50000"})
+    public int tagsSeen;
+
+    private TagRead[] reads;
+    private List<String> seenEpcs;
+    private EpcDeduplicator deduplicator;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        reads = new TagRead[tagsSeen];
+        seenEpcs = new ArrayList<>(tagsSeen);
+        deduplicator = new EpcDeduplicator(tagsSeen, REARM_MS);
+        for (int i = 0; i < tagsSeen; i++) {
+            // SGTIN-96 style: fixed company prefix, random serial
+            String epc = String.format("3030401A78015CF6%08X", random.nextInt());
+            reads[i] = TagRead.ofEpc(epc);
+            seenEpcs.add(epc);
+            deduplicator.isNew(reads[i], 1);
+        }
+    }
+
+    private TagRead nextRead() {
+        TagRead read = reads[next];
+        next = next + 1 == reads.length ? 0 : next + 1;
+        return read;
+    }
+
+    @Benchmark
+    public boolean deduplicator() {
+        return deduplicator.isNew(nextRead(), 2);
+    }
+
+    @Benchmark
+    public boolean listScan() {
+        String epc = nextRead().getEPC();
+        for (String seen : seenEpcs) {
+            if (seen.equals(epc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean deduplicatorContended(ThreadCursor cursor) {
+        if (cursor.next >= reads.length) {
+            cursor.next = 0;
+        }
+        return deduplicator.isNew(reads[cursor.next++], 2);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadCursor {
+        // threads start at different tags so they do not walk the same segment in lockstep
+        int next = (int) (Thread.currentThread().getId() * 7919 % 50000);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.alienprobe.jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Saving the read list as one comma-joined line, as saveReadsToUniqueFile in the desktop app
+// first did: stringBuilderJoin builds the whole line and then writes it, streamedJoin writes
+// each EPC straight to the writer, stringJoin is String.join. The file is replaced by a sink that
+// discards its bytes, so only the joining and encoding are measured.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExportBenchmark {
+    @Param({"30", "1000", "10000"})
+    public int reads;
+
+    private List<String> listModel;
+
+    @Setup
+    public void setUp() {
+        listModel = Arrays.asList(TagPayloads.epcs(reads));
+    }
+
+    private static Writer newWriter() {
+        return new BufferedWriter(new OutputStreamWriter(new DiscardingOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void stringBuilderJoin() throws IOException {
+        try (Writer writer = newWriter()) {
+            StringBuilder data = new StringBuilder();
+            for (int i = 0; i < listModel.size(); i++) {
+                data.append(listModel.get(i));
+                if (i < listModel.size() - 1) {
+                    data.append(",");
+                }
+            }
+            writer.write(String.valueOf(data));
+        }
+    }
+
+    @Benchmark
+    public void streamedJoin() throws IOException {
+        try (Writer writer = newWriter()) {
+            for (int i = 0; i < listModel.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(listModel.get(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void stringJoin() throws IOException {
+        try (Writer writer = newWriter()) {
+            writer.write(String.join(",", listModel));
+        }
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.alienprobe.jmh;
+
+import com.example.alienprobe.java.RFIDTag;
+import com.example.alienprobe.java.TagListParser;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Turning one reply to "t" into RFIDTags. splitLines is the original GetTagList (a regex split,
+// then one RFIDTag per line); the parse* cases are AlienScanner.pollTags with the reply in the
+// reader's Text format and in the compact custom format it now asks for.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TagListParsingBenchmark {
+    // ReaderSession.COMPACT_TAGLIST_FORMAT; the session itself needs the reader library
+    private static final String COMPACT_TAGLIST_FORMAT = "%k,%a,%r,${RSSI}";
+
+    @Param({"10", "100", "1000"})
+    public int tags;
+
+    private String textReply;
+    private String compactReply;
+    private TagListParser textParser;
+    private TagListParser compactParser;
+
+    @Setup
+    public void setUp() {
+        String[] epcs = TagPayloads.epcs(tags);
+        textReply = TagPayloads.textReply(epcs);
+        compactReply = TagPayloads.compactReply(epcs);
+        textParser = TagListParser.text();
+        compactParser = TagListParser.custom(COMPACT_TAGLIST_FORMAT);
+    }
+
+    @Benchmark
+    public List<RFIDTag> splitLines() {
+        List<RFIDTag> outputTags = new ArrayList<>();
+        List<String> outputLines = Arrays.stream(textReply.split("\\r?\\n"))
+                .collect(Collectors.toList());
+        for (String line : outputLines) {
+            outputTags.add(new RFIDTag(line));
+        }
+        return outputTags;
+    }
+
+    @Benchmark
+    public List<RFIDTag> parseText() {
+        List<RFIDTag> outputTags = new ArrayList<>(tags);
+        textParser.parse(textReply, read -> outputTags.add(new RFIDTag(read)));
+        return outputTags;
+    }
+
+    @Benchmark
+    public List<RFIDTag> parseCompact() {
+        List<RFIDTag> outputTags = new ArrayList<>(tags);
+        compactParser.parse(compactReply, read -> outputTags.add(new RFIDTag(read)));
+        return outputTags;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.alienprobe.jmh;
+
+import com.example.alienprobe.database.TagModel;
+import com.example.alienprobe.java.RFIDTag;
+import com.example.alienprobe.java.TagRead;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-tag object cost: the RFIDTag each read becomes, the TagModel each new sighting is stored
+// as, and their toString (what the tag lists and the logs print).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TagModelBenchmark {
+    private static final double LONGITUDE = -86.4544;
+    private static final double LATITUDE = 36.9685;
+    private static final long TIME_MILLIS = 1_713_282_163_000L;
+
+    private String[] epcs;
+    private TagRead[] reads;
+    private RFIDTag[] tags;
+    private TagModel[] models;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        epcs = TagPayloads.epcs(1000);
+        reads = new TagRead[epcs.length];
+        tags = new RFIDTag[epcs.length];
+        models = new TagModel[epcs.length];
+        for (int i = 0; i < epcs.length; i++) {
+            reads[i] = TagRead.ofEpc(epcs[i]);
+            tags[i] = new RFIDTag(reads[i]);
+            models[i] = new TagModel(reads[i], LONGITUDE, LATITUDE, TIME_MILLIS + i, "Red Ford Focus (123ABC)");
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = next + 1 == epcs.length ? 0 : next + 1;
+        return index;
+    }
+
+    @Benchmark
+    public RFIDTag rfidTagFromEpc() {
+        return new RFIDTag(epcs[nextIndex()]);
+    }
+
+    @Benchmark
+    public RFIDTag rfidTagFromRead() {
+        return new RFIDTag(reads[nextIndex()]);
+    }
+
+    @Benchmark
+    public String rfidTagToString() {
+        return tags[nextIndex()].toString();
+    }
+
+    @Benchmark
+    public TagModel tagModelFromRead() {
+        int index = nextIndex();
+        return new TagModel(reads[index], LONGITUDE, LATITUDE, TIME_MILLIS + index, null);
+    }
+
+    @Benchmark
+    public String tagModelToString() {
+        return models[nextIndex()].toString();
+    }
+}
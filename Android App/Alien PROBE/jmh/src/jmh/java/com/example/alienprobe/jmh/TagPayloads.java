@@ -0,0 +1,106 @@
+package com.example.alienprobe.jmh;
+
+import com.example.alienprobe.java.Vehicle;
+import com.google.gson.Gson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Inputs for the benchmarks, built from the tags in the desktop app's collected_data/ exports
+// (readsData_*.rtf): 96-bit permits sharing a company prefix, a few foreign 96-bit tags, a 48-bit
+// one and an all-zero test tag. The export also holds a 48-digit run of two EPCs stuck together;
+// it is left out, as the parser would cut it at 32 digits anyway.
+final class TagPayloads {
+    static final String[] FIELD_EPCS = {
+            "3030401A78015CF6C0015EFD",
+            "000000000000000000006160",
+            "3030401A78015CF6C0016A16",
+            "3030401A78015CF6C0016A13",
+            "30340BB69020378BA43BE548",
+            "303404602C11130000014723",
+            "303402E1C821200BA43B8B47",
+            "1A80C51D2279A4B07A647DD2",
+            "0C18C81C259C",
+            "3034186A002F8A403B9ACB23",
+    };
+
+    private static final String[] MAKES = {"Ford", "Toyota", "Honda", "Chevrolet", "Nissan", "Subaru"};
+    private static final String[] MODELS = {"Focus", "Camry", "Civic", "Malibu", "Altima", "Outback"};
+    private static final String[] COLORS = {"Red", "Black", "White", "Silver", "Blue", "Grey"};
+
+    private TagPayloads() {
+    }
+
+    // count distinct EPCs: the field tags, then more like them with the last six digits counted up
+    static String[] epcs(int count) {
+        String[] epcs = new String[count];
+        for (int i = 0; i < count; i++) {
+            String base = FIELD_EPCS[i % FIELD_EPCS.length];
+            int round = i / FIELD_EPCS.length;
+            if (round == 0) {
+                epcs[i] = base;
+                continue;
+            }
+            int split = base.length() - 6;
+            long serial = (Long.parseLong(base.substring(split), 16) + round) & 0xFFFFFF;
+            epcs[i] = base.substring(0, split) + String.format("%06X", serial);
+        }
+        return epcs;
+    }
+
+    // "t" in the reader's default Text format, one line per tag
+    static String textReply(String[] epcs) {
+        Random random = new Random(7);
+        StringBuilder reply = new StringBuilder(epcs.length * 120);
+        for (String epc : epcs) {
+            if (reply.length() > 0) {
+                reply.append("\r\n");
+            }
+            reply.append("Tag:");
+            for (int i = 0; i < epc.length(); i += 4) {
+                if (i > 0) {
+                    reply.append(' ');
+                }
+                reply.append(epc, i, Math.min(epc.length(), i + 4));
+            }
+            reply.append(", Disc:2024/04/16 11:42:43, Last:2024/04/16 11:42:")
+                    .append(String.format(Locale.ROOT, "%02d", 43 + random.nextInt(16)))
+                    .append(", Count:").append(1 + random.nextInt(40))
+                    .append(", Ant:").append(random.nextInt(4))
+                    .append(", Proto:2");
+        }
+        return reply.toString();
+    }
+
+    // "t" in the compact custom format AlienScanner asks for: EPC, antenna, count, RSSI
+    static String compactReply(String[] epcs) {
+        Random random = new Random(7);
+        StringBuilder reply = new StringBuilder(epcs.length * 40);
+        for (String epc : epcs) {
+            if (reply.length() > 0) {
+                reply.append("\r\n");
+            }
+            reply.append(epc)
+                    .append(',').append(random.nextInt(4))
+                    .append(',').append(1 + random.nextInt(40))
+                    .append(',').append(String.format(Locale.ROOT, "%.1f", -45 - random.nextFloat() * 25));
+        }
+        return reply.toString();
+    }
+
+    // The server's answer to getVehicleListByPermit for a permit with count vehicles
+    static String vehiclesJson(int count) {
+        Random random = new Random(11);
+        List<Vehicle> vehicles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String plate = String.format("%03d%c%c%c", random.nextInt(1000),
+                    (char) ('A' + random.nextInt(26)), (char) ('A' + random.nextInt(26)), (char) ('A' + random.nextInt(26)));
+            vehicles.add(new Vehicle(9_007_199_254_000L + random.nextInt(1_000_000), plate,
+                    MAKES[random.nextInt(MAKES.length)], MODELS[random.nextInt(MODELS.length)],
+                    COLORS[random.nextInt(COLORS.length)]));
+        }
+        return new Gson().toJson(vehicles);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.alienprobe.jmh;
+
+import com.example.alienprobe.java.Vehicle;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Decoding a getVehicleListByPermit response. converterPath is what Retrofit's GsonConverterFactory
+// does per call (an adapter looked up once, reading from the body's stream); sharedGson and
+// newGsonPerCall decode the same string through Gson.fromJson, with and without reusing the Gson.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VehicleDecodingBenchmark {
+    private static final Type VEHICLE_LIST = new TypeToken<List<Vehicle>>() {}.getType();
+
+    @Param({"1", "10", "100"})
+    public int vehicles;
+
+    private String json;
+    private Gson gson;
+    private TypeAdapter<List<Vehicle>> adapter;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setUp() {
+        json = TagPayloads.vehiclesJson(vehicles);
+        gson = new Gson();
+        adapter = (TypeAdapter<List<Vehicle>>) gson.getAdapter(TypeToken.get(VEHICLE_LIST));
+    }
+
+    @Benchmark
+    public List<Vehicle> converterPath() throws IOException {
+        return adapter.read(gson.newJsonReader(new StringReader(json)));
+    }
+
+    @Benchmark
+    public List<Vehicle> sharedGson() {
+        return gson.fromJson(json, VEHICLE_LIST);
+    }
+
+    @Benchmark
+    public List<Vehicle> newGsonPerCall() {
+        return new Gson().fromJson(json, VEHICLE_LIST);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.alienprobe.macrobenchmark
+
+import android.content.Intent
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.Until
+
+// The app under test, and the steps the benchmarks and the profile generator share
+internal const val TARGET_PACKAGE = "com.example.alienprobe"
+private const val SCANNER_ACTIVITY = "com.example.alienprobe.presentation.ScannerActivity"
+private const val WAIT_MS = 5_000L
+
+// Both screens ask for location on launch; granted up front, no dialog gets in the way
+internal fun MacrobenchmarkScope.grantLocation() {
+    device.executeShellCommand("pm grant $TARGET_PACKAGE android.permission.ACCESS_FINE_LOCATION")
+    device.executeShellCommand("pm grant $TARGET_PACKAGE android.permission.ACCESS_COARSE_LOCATION")
+}
+
+// Straight into the scan screen, as a shortcut or a return from the recents list would
+internal fun MacrobenchmarkScope.startScanner() {
+    startActivityAndWait(Intent().setClassName(TARGET_PACKAGE, SCANNER_ACTIVITY))
+}
+
+// From the launcher screen to the scan screen, the way an officer gets there
+internal fun MacrobenchmarkScope.openScannerFromMain() {
+    device.findObject(By.res(TARGET_PACKAGE, "btnViewScanner")).click()
+    device.wait(Until.hasObject(By.res(TARGET_PACKAGE, "toggleScanner")), WAIT_MS)
+}
+
+// Scanning on for a few polls, a manual poll, a fling through the list, scanning off
+internal fun MacrobenchmarkScope.scan(durationMs: Long) {
+    val toggle = device.findObject(By.res(TARGET_PACKAGE, "toggleScanner"))
+    toggle.click()
+    Thread.sleep(durationMs)
+    device.findObject(By.res(TARGET_PACKAGE, "getTagListButton"))?.click()
+    val list = device.findObject(By.res(TARGET_PACKAGE, "liveTagsRecyclerView"))
+    if (list != null) {
+        // clear of the system gesture areas at the screen edges
+        list.setGestureMargin(device.displayWidth / 5)
+        list.fling(Direction.DOWN)
+        device.waitForIdle()
+    }
+    toggle.click()
+    device.waitForIdle()
+}
@@ -0,0 +1,31 @@
+package com.example.alienprobe.macrobenchmark
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Records the code an officer's usual path runs (launch, open the scan screen, scan for a while)
+// as a baseline profile. Needs Android 13+ or a rooted device:
+//   ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest \
+//       -Pandroid.testInstrumentationRunnerArguments.class=com.example.alienprobe.macrobenchmark.BaselineProfileGenerator
+// then copy the generated *-baseline-prof.txt over app/src/main/baseline-prof.txt.
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+    @get:Rule
+    val rule = BaselineProfileRule()
+
+    @Test
+    fun generate() = rule.collect(packageName = TARGET_PACKAGE) {
+        pressHome()
+        grantLocation()
+        startActivityAndWait()
+        openScannerFromMain()
+        scan(SCAN_MS)
+    }
+
+    companion object {
+        private const val SCAN_MS = 3_000L
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.alienprobe.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Frame times on the scan screen while it scans: the live list updating every poll, a manual
+// poll and a fling through the list. With no reader set up the list stays empty and only the
+// toggle and the failing polls are measured; for a full list, run the desktop ReaderSimulator,
+// "adb reverse tcp:2323 tcp:2323", and point the app's setup at 127.0.0.1 port 2323.
+@RunWith(AndroidJUnit4::class)
+class ScanScreenBenchmark {
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun scanNoCompilation() = measure(CompilationMode.None())
+
+    @Test
+    fun scanBaselineProfile() = measure(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun measure(compilationMode: CompilationMode) =
+        rule.measureRepeated(
+            packageName = TARGET_PACKAGE,
+            metrics = listOf(FrameTimingMetric()),
+            compilationMode = compilationMode,
+            startupMode = StartupMode.WARM,
+            iterations = ITERATIONS,
+            setupBlock = {
+                grantLocation()
+                startScanner()
+            },
+        ) {
+            scan(SCAN_MS)
+        }
+
+    companion object {
+        private const val ITERATIONS = 5
+        private const val SCAN_MS = 5_000L
+    }
+}
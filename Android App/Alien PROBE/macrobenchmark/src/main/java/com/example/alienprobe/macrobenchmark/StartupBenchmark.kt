@@ -0,0 +1,60 @@
+package com.example.alienprobe.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Time to first frame and to fully drawn (ScannerActivity reports it once the reader session and
+// the vehicle cache are ready), cold and warm, to the launcher screen and straight into the scan
+// screen. Each runs without ahead-of-time compilation and with the shipped baseline profile, so the
+// profile's effect reads off side by side.
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun coldMainNoCompilation() = measure(StartupMode.COLD, CompilationMode.None()) { startActivityAndWait() }
+
+    @Test
+    fun coldMainBaselineProfile() = measure(StartupMode.COLD, BASELINE_PROFILE) { startActivityAndWait() }
+
+    @Test
+    fun warmMainBaselineProfile() = measure(StartupMode.WARM, BASELINE_PROFILE) { startActivityAndWait() }
+
+    @Test
+    fun coldScannerNoCompilation() = measure(StartupMode.COLD, CompilationMode.None()) { startScanner() }
+
+    @Test
+    fun coldScannerBaselineProfile() = measure(StartupMode.COLD, BASELINE_PROFILE) { startScanner() }
+
+    @Test
+    fun warmScannerBaselineProfile() = measure(StartupMode.WARM, BASELINE_PROFILE) { startScanner() }
+
+    private fun measure(startupMode: StartupMode, compilationMode: CompilationMode, launch: MacrobenchmarkScope.() -> Unit) =
+        rule.measureRepeated(
+            packageName = TARGET_PACKAGE,
+            metrics = listOf(StartupTimingMetric()),
+            compilationMode = compilationMode,
+            startupMode = startupMode,
+            iterations = ITERATIONS,
+            setupBlock = {
+                pressHome()
+                grantLocation()
+            },
+        ) {
+            launch()
+        }
+
+    companion object {
+        private const val ITERATIONS = 10
+        private val BASELINE_PROFILE = CompilationMode.Partial(BaselineProfileMode.Require)
+    }
+}
@@ -15,3 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Alien PROBE"
 include(":app")
+include(":jmh")
+include(":macrobenchmark")